@@ -0,0 +1,136 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.FileDataSource;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.SharedFileInputStream;
+import jodd.io.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares receiving a message with a large attachment into memory with receiving it
+ * into the attachment storage. Run with {@code -prof gc} to see allocation per message:
+ * streaming into the storage allocates a small, constant amount regardless of the
+ * attachment size. Run with a small heap (e.g. {@code -Xmx128m}) to see the in-memory
+ * variant fail on large attachments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AttachmentStorageBenchmark {
+
+	@Param({"64", "256"})
+	public int attachmentSizeMb;
+
+	private Session session;
+	private File workDir;
+	private File storage;
+	private File messageFile;
+
+	@Setup
+	public void setup() throws IOException, MessagingException {
+		session = Session.getInstance(new Properties());
+		workDir = FileUtil.createTempDirectory("jodd", "bench");
+		storage = new File(workDir, "storage");
+		FileUtil.mkdirs(storage);
+
+		final File payload = new File(workDir, "payload.bin");
+		final Random random = new Random(173);
+		final byte[] chunk = new byte[1024 * 1024];
+		try (final OutputStream out = new FileOutputStream(payload)) {
+			for (int i = 0; i < attachmentSizeMb; i++) {
+				random.nextBytes(chunk);
+				out.write(chunk);
+			}
+		}
+
+		final MimeBodyPart text = new MimeBodyPart();
+		text.setText("Hello");
+		final MimeBodyPart attachment = new MimeBodyPart();
+		attachment.setDataHandler(new DataHandler(new FileDataSource(payload)));
+		attachment.setFileName("payload.bin");
+
+		final MimeMessage message = new MimeMessage(session);
+		message.setSubject("Large");
+		message.setContent(new MimeMultipart(text, attachment));
+		message.saveChanges();
+
+		messageFile = new File(workDir, "message.eml");
+		try (final OutputStream out = new FileOutputStream(messageFile)) {
+			message.writeTo(out);
+		}
+		FileUtil.delete(payload);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtil.deleteDir(workDir);
+	}
+
+	@Benchmark
+	public ReceivedEmail receiveIntoMemory() throws MessagingException, IOException {
+		return receive(null);
+	}
+
+	@Benchmark
+	public ReceivedEmail receiveIntoStorage() throws MessagingException, IOException {
+		return receive(storage);
+	}
+
+	private ReceivedEmail receive(final File attachmentStorage) throws MessagingException, IOException {
+		try (final SharedFileInputStream in = new SharedFileInputStream(messageFile)) {
+			return new ReceivedEmail(new MimeMessage(session, in), false, attachmentStorage);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares creating and writing a message from {@link Email} with doing the same
+ * from {@link EmailTemplate}. Run with {@code -prof gc} to see allocation per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmailTemplateBenchmark {
+
+	private SendMailSession sendMailSession;
+	private Email email;
+	private Email recipient;
+	private EmailTemplate template;
+
+	@Setup
+	public void setup() {
+		final byte[] attachment = new byte[256 * 1024];
+		for (int i = 0; i < attachment.length; i++) {
+			attachment[i] = (byte) i;
+		}
+
+		email = Email.create()
+			.from("campaign@jodd.org")
+			.to("one@jodd.org")
+			.subject("News")
+			.textMessage("Hello!")
+			.htmlMessage("<html><body><h1>Hello!</h1></body></html>")
+			.attachment(EmailAttachment.with().name("report.bin").content(attachment, "application/octet-stream"));
+
+		recipient = Email.create().to("one@jodd.org");
+		template = EmailTemplate.of(email);
+		sendMailSession = new SendMailSession(Session.getInstance(new Properties()), null);
+	}
+
+	@Benchmark
+	public MimeMessage createMessage() throws MessagingException, IOException {
+		final MimeMessage msg = sendMailSession.createMessage(email);
+		msg.writeTo(NullOutputStream.INSTANCE);
+		return msg;
+	}
+
+	@Benchmark
+	public MimeMessage createMessageFromTemplate() throws MessagingException, IOException {
+		final MimeMessage msg = sendMailSession.createMessage(template, recipient);
+		msg.writeTo(NullOutputStream.INSTANCE);
+		return msg;
+	}
+
+	private static class NullOutputStream extends OutputStream {
+		private static final NullOutputStream INSTANCE = new NullOutputStream();
+
+		@Override
+		public void write(final int b) {
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+		}
+	}
+}
@@ -0,0 +1,298 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.mail;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends emails asynchronously, using the {@link SmtpConnectionPool}. Emails are queued in
+ * a bounded queue and sent by a fixed number of workers, each one working with a pooled
+ * connection. Callers never wait for the SMTP server; what happens when the queue is full
+ * is defined by the {@link OverflowPolicy}.
+ * <p>
+ * The pool is not closed by this sender; close it after the sender is closed.
+ * <p>
+ * On Java 21 and newer, workers may run on virtual threads, see {@link Builder#virtualThreads(boolean)}.
+ */
+public class AsyncMailSender implements AutoCloseable {
+
+	/**
+	 * Defines what happens when an email is sent while the queue is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * Returned future is immediately completed with {@link MailException}.
+		 */
+		REJECT,
+		/**
+		 * Caller is blocked until there is space in the queue.
+		 */
+		BLOCK,
+		/**
+		 * Email is sent in the caller thread.
+		 */
+		CALLER_RUNS
+	}
+
+	/**
+	 * Returns new sender builder that uses given {@link SmtpConnectionPool}.
+	 */
+	public static Builder create(final SmtpConnectionPool pool) {
+		return new Builder(pool);
+	}
+
+	private final SmtpConnectionPool pool;
+	private final ThreadPoolExecutor executor;
+	private final long drainTimeout;
+
+	protected AsyncMailSender(final Builder builder) {
+		this.pool = builder.pool;
+		this.drainTimeout = builder.drainTimeout;
+		this.executor = new ThreadPoolExecutor(
+			builder.workers, builder.workers,
+			0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(builder.queueCapacity),
+			resolveThreadFactory(builder),
+			resolveRejectedExecutionHandler(builder.overflowPolicy));
+	}
+
+	/**
+	 * Queues the email for sending. Returned future completes with the message ID
+	 * of the sent email or exceptionally when sending fails.
+	 *
+	 * @param email {@link Email} to send.
+	 * @return future of the message ID.
+	 */
+	public CompletableFuture<String> sendAsync(final Email email) {
+		final SendTask sendTask = new SendTask(email);
+		try {
+			executor.execute(sendTask);
+		}
+		catch (final RejectedExecutionException rex) {
+			final String message = executor.isShutdown() ? "Mail sender is closed" : "Mail sender queue is full";
+			sendTask.future.completeExceptionally(new MailException(message, rex));
+		}
+		return sendTask.future;
+	}
+
+	/**
+	 * Returns number of emails waiting in the queue.
+	 */
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * Stops accepting new emails and waits for queued emails to be sent, up to the
+	 * drain timeout. Emails that are still waiting after the timeout are not sent
+	 * and their futures complete exceptionally.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			if (executor.awaitTermination(drainTimeout, TimeUnit.MILLISECONDS)) {
+				return;
+			}
+		}
+		catch (final InterruptedException iex) {
+			Thread.currentThread().interrupt();
+		}
+
+		final List<Runnable> notSent = executor.shutdownNow();
+		for (final Runnable runnable : notSent) {
+			((SendTask) runnable).future.completeExceptionally(new MailException("Mail sender closed before email was sent"));
+		}
+	}
+
+	// ---------------------------------------------------------------- internal
+
+	/**
+	 * Sends single email using the pooled connection.
+	 */
+	private class SendTask implements Runnable {
+		private final Email email;
+		private final CompletableFuture<String> future = new CompletableFuture<>();
+
+		private SendTask(final Email email) {
+			this.email = email;
+		}
+
+		@Override
+		public void run() {
+			if (future.isDone()) {
+				return;
+			}
+			try (final SendMailSession session = pool.borrowSession()) {
+				future.complete(session.sendMail(email));
+			}
+			catch (final RuntimeException rex) {
+				future.completeExceptionally(rex);
+			}
+		}
+	}
+
+	private static RejectedExecutionHandler resolveRejectedExecutionHandler(final OverflowPolicy overflowPolicy) {
+		switch (overflowPolicy) {
+			case BLOCK:
+				return (runnable, executor) -> {
+					if (executor.isShutdown()) {
+						throw new RejectedExecutionException();
+					}
+					try {
+						executor.getQueue().put(runnable);
+					}
+					catch (final InterruptedException iex) {
+						Thread.currentThread().interrupt();
+						throw new RejectedExecutionException(iex);
+					}
+					// closed while waiting, workers may be already gone
+					if (executor.isShutdown() && executor.remove(runnable)) {
+						throw new RejectedExecutionException();
+					}
+				};
+			case CALLER_RUNS:
+				return (runnable, executor) -> {
+					if (executor.isShutdown()) {
+						throw new RejectedExecutionException();
+					}
+					runnable.run();
+				};
+			default:
+				return (runnable, executor) -> {
+					throw new RejectedExecutionException();
+				};
+		}
+	}
+
+	private static ThreadFactory resolveThreadFactory(final Builder builder) {
+		if (builder.threadFactory != null) {
+			return builder.threadFactory;
+		}
+		if (builder.virtualThreads) {
+			return MailThreads.virtualThreadFactory("jodd-mail-sender-");
+		}
+		return MailThreads.platformThreadFactory("jodd-mail-sender-");
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Builder of {@link AsyncMailSender}.
+	 */
+	public static class Builder {
+		private final SmtpConnectionPool pool;
+		private int workers = 4;
+		private int queueCapacity = 1000;
+		private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+		private long drainTimeout = 30_000;
+		private ThreadFactory threadFactory;
+		private boolean virtualThreads;
+
+		protected Builder(final SmtpConnectionPool pool) {
+			Objects.requireNonNull(pool, "SMTP connection pool cannot be null");
+			this.pool = pool;
+		}
+
+		/**
+		 * Sets number of workers, i.e. number of emails sent in parallel. Should not be
+		 * greater than the maximal number of pool connections. By default, this is {@code 4}.
+		 */
+		public Builder workers(final int workers) {
+			this.workers = workers;
+			return this;
+		}
+
+		/**
+		 * Sets the capacity of the queue of emails waiting to be sent.
+		 * By default, this is {@code 1000}.
+		 */
+		public Builder queueCapacity(final int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+			return this;
+		}
+
+		/**
+		 * Sets the {@link OverflowPolicy} used when the queue is full.
+		 * By default, this is {@link OverflowPolicy#REJECT}.
+		 */
+		public Builder overflowPolicy(final OverflowPolicy overflowPolicy) {
+			Objects.requireNonNull(overflowPolicy, "Overflow policy cannot be null");
+			this.overflowPolicy = overflowPolicy;
+			return this;
+		}
+
+		/**
+		 * Sets how long, in milliseconds, {@link AsyncMailSender#close()} waits for
+		 * queued emails to be sent. By default, this is 30 seconds.
+		 */
+		public Builder drainTimeout(final long drainTimeout) {
+			this.drainTimeout = drainTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets custom {@link ThreadFactory} for worker threads.
+		 */
+		public Builder threadFactory(final ThreadFactory threadFactory) {
+			this.threadFactory = threadFactory;
+			return this;
+		}
+
+		/**
+		 * Runs workers on virtual threads when the JVM supports them (Java 21+).
+		 * Waiting for the SMTP server then does not occupy a platform thread, so the
+		 * number of workers may be much larger. On older JVMs this flag is ignored
+		 * and platform threads are used. Ignored when custom thread factory is set.
+		 */
+		public Builder virtualThreads(final boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
+		/**
+		 * Creates new {@link AsyncMailSender}.
+		 */
+		public AsyncMailSender build() {
+			if (workers <= 0) {
+				throw new MailException("Number of workers must be positive");
+			}
+			if (queueCapacity <= 0) {
+				throw new MailException("Queue capacity must be positive");
+			}
+			return new AsyncMailSender(this);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Collects the size, the digest and the first bytes of an attachment while its content
+ * is read, so the content does not have to be read again.
+ */
+class AttachmentInspector {
+
+	private static final int HEAD_SIZE = 16;
+
+	private final String digestAlgorithm;
+	private final MessageDigest digest;
+	private final byte[] head = new byte[HEAD_SIZE];
+	private int headLength;
+	private long size;
+
+	/**
+	 * Creates new inspector.
+	 *
+	 * @param digestAlgorithm digest algorithm, or {@code null} when the digest is not computed.
+	 */
+	AttachmentInspector(final String digestAlgorithm) {
+		this.digestAlgorithm = digestAlgorithm;
+		this.digest = digestAlgorithm != null ? newDigest(digestAlgorithm) : null;
+	}
+
+	static MessageDigest newDigest(final String digestAlgorithm) {
+		try {
+			return MessageDigest.getInstance(digestAlgorithm);
+		} catch (final NoSuchAlgorithmException nsaex) {
+			throw new MailException("Unknown digest algorithm: " + digestAlgorithm, nsaex);
+		}
+	}
+
+	/**
+	 * Inspects the next chunk of the content.
+	 */
+	void update(final byte[] bytes, final int off, final int len) {
+		if (len <= 0) {
+			return;
+		}
+		if (headLength < HEAD_SIZE) {
+			final int count = Math.min(len, HEAD_SIZE - headLength);
+			System.arraycopy(bytes, off, head, headLength, count);
+			headLength += count;
+		}
+		if (digest != null) {
+			digest.update(bytes, off, len);
+		}
+		size += len;
+	}
+
+	/**
+	 * Returns the input stream that inspects all bytes read from given stream.
+	 */
+	InputStream inspect(final InputStream inputStream) {
+		return new FilterInputStream(inputStream) {
+			@Override
+			public int read() throws IOException {
+				final int b = super.read();
+				if (b != -1) {
+					update(new byte[] {(byte) b}, 0, 1);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(final byte[] b, final int off, final int len) throws IOException {
+				final int count = super.read(b, off, len);
+				update(b, off, count);
+				return count;
+			}
+
+			@Override
+			public long skip(final long n) throws IOException {
+				final byte[] skipped = new byte[(int) Math.min(n, 8192)];
+				final int count = read(skipped, 0, skipped.length);
+				return Math.max(count, 0);
+			}
+
+			@Override
+			public boolean markSupported() {
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Sets collected size, digest and detected content type to the attachment.
+	 */
+	void applyTo(final EmailAttachment<?> attachment) {
+		if (size <= Integer.MAX_VALUE) {
+			attachment.setSize((int) size);
+		}
+		if (digest != null) {
+			attachment.setDigest(digestAlgorithm, String.format("%0" + (digest.getDigestLength() * 2) + "x", new BigInteger(1, digest.digest())));
+		}
+		attachment.setDetectedContentType(detectContentType());
+	}
+
+	/**
+	 * Detects the content type from the magic number at the beginning of the content.
+	 */
+	String detectContentType() {
+		if (startsWith('%', 'P', 'D', 'F')) {
+			return "application/pdf";
+		}
+		if (startsWith(0x89, 'P', 'N', 'G')) {
+			return "image/png";
+		}
+		if (startsWith(0xFF, 0xD8, 0xFF)) {
+			return "image/jpeg";
+		}
+		if (startsWith('G', 'I', 'F', '8')) {
+			return "image/gif";
+		}
+		if (startsWith('P', 'K', 3, 4)) {
+			return "application/zip";
+		}
+		if (startsWith(0x1F, 0x8B)) {
+			return "application/gzip";
+		}
+		try {
+			return URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(head, 0, headLength));
+		} catch (final IOException ignore) {
+			return null;
+		}
+	}
+
+	private boolean startsWith(final int... magic) {
+		if (headLength < magic.length) {
+			return false;
+		}
+		for (int i = 0; i < magic.length; i++) {
+			if ((head[i] & 0xFF) != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,61 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Store of received attachments. Each attachment is streamed into the store,
+ * and the store returns the file that holds its content.
+ *
+ * @see FileAttachmentStore
+ * @see ContentAddressedAttachmentStore
+ * @see MailServer.Builder#storeAttachmentsIn(AttachmentStore)
+ */
+public interface AttachmentStore {
+
+	/**
+	 * Stores the content of an attachment.
+	 *
+	 * @param name    suggested name, built from the message id and the attachment number;
+	 *                it is not guaranteed to be unique.
+	 * @param content the content, read until its end.
+	 * @return file that holds the stored content.
+	 * @throws IOException if the content cannot be read or stored.
+	 */
+	File store(String name, InputStream content) throws IOException;
+
+	/**
+	 * Releases the stored content, when it is no longer used by the received email.
+	 *
+	 * @param file file returned by {@link #store(String, InputStream)}.
+	 * @return {@code true} if the file was deleted.
+	 * @throws IOException if the file cannot be deleted.
+	 */
+	boolean release(File file) throws IOException;
+}
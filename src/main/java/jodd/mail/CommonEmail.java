@@ -32,6 +32,7 @@ import jodd.net.MimeTypes;
 
 import jakarta.mail.Header;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -64,6 +65,37 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	@Override
 	public abstract T clone();
 
+	// ---------------------------------------------------------------- frozen
+
+	/**
+	 * Frozen email can not be modified. Volatile, so the frozen email is safely published.
+	 */
+	private volatile boolean frozen;
+
+	/**
+	 * Returns {@code true} if email is frozen and can not be modified.
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Marks this email as frozen. After this, any modification throws {@link MailException}.
+	 */
+	protected T markFrozen() {
+		this.frozen = true;
+		return _this();
+	}
+
+	/**
+	 * Throws {@link MailException} if the email is frozen.
+	 */
+	protected void checkNotFrozen() {
+		if (frozen) {
+			throw new MailException("Email is frozen and can not be modified");
+		}
+	}
+
 	// ---------------------------------------------------------------- from
 
 	/**
@@ -78,6 +110,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T from(final EmailAddress from) {
+		checkNotFrozen();
 		this.from = from;
 		return _this();
 	}
@@ -137,6 +170,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T to(final EmailAddress to) {
+		checkNotFrozen();
 		this.to = ArraysUtil.append(this.to, to);
 		return _this();
 	}
@@ -204,6 +238,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T to(final EmailAddress... tos) {
+		checkNotFrozen();
 		this.to = valueOrEmptyArray(tos);
 		return _this();
 	}
@@ -212,13 +247,14 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * Returns TO addresses.
 	 */
 	public EmailAddress[] to() {
-		return to;
+		return frozen ? to.clone() : to;
 	}
 
 	/**
 	 * Resets TO addresses.
 	 */
 	public T resetTo() {
+		checkNotFrozen();
 		this.to = EmailAddress.EMPTY_ARRAY;
 		return _this();
 	}
@@ -234,6 +270,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T replyTo(final EmailAddress replyTo) {
+		checkNotFrozen();
 		this.replyTo = ArraysUtil.append(this.replyTo, replyTo);
 		return _this();
 	}
@@ -301,6 +338,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T replyTo(final EmailAddress... replyTo) {
+		checkNotFrozen();
 		this.replyTo = ArraysUtil.join(this.replyTo, valueOrEmptyArray(replyTo));
 		return _this();
 	}
@@ -309,13 +347,14 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * Returns REPLY-TO addresses.
 	 */
 	public EmailAddress[] replyTo() {
-		return replyTo;
+		return frozen ? replyTo.clone() : replyTo;
 	}
 
 	/**
 	 * Resets all REPLY-To addresses.
 	 */
 	public T resetReplyTo() {
+		checkNotFrozen();
 		this.replyTo = EmailAddress.EMPTY_ARRAY;
 		return _this();
 	}
@@ -334,6 +373,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T cc(final EmailAddress to) {
+		checkNotFrozen();
 		this.cc = ArraysUtil.append(this.cc, to);
 		return _this();
 	}
@@ -401,6 +441,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T cc(final EmailAddress... ccs) {
+		checkNotFrozen();
 		this.cc = ArraysUtil.join(this.cc, valueOrEmptyArray(ccs));
 		return _this();
 	}
@@ -409,13 +450,14 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * Returns CC addresses.
 	 */
 	public EmailAddress[] cc() {
-		return cc;
+		return frozen ? cc.clone() : cc;
 	}
 
 	/**
 	 * Resets all CC addresses.
 	 */
 	public T resetCc() {
+		checkNotFrozen();
 		this.cc = EmailAddress.EMPTY_ARRAY;
 		return _this();
 	}
@@ -439,6 +481,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T subject(final String subject) {
+		checkNotFrozen();
 		this.subject = subject;
 		return _this();
 	}
@@ -485,9 +528,12 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	private final List<EmailMessage> messages = new ArrayList<>();
 
 	/**
-	 * Returns all messages.
+	 * Returns all messages. List is not modifiable when email is frozen.
 	 */
 	public List<EmailMessage> messages() {
+		if (frozen) {
+			return Collections.unmodifiableList(messages);
+		}
 		return messages;
 	}
 
@@ -498,6 +544,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T message(final List<EmailMessage> msgsToAdd) {
+		checkNotFrozen();
 		messages.addAll(msgsToAdd);
 		return _this();
 	}
@@ -509,6 +556,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T message(final EmailMessage msgToAdd) {
+		checkNotFrozen();
 		messages.add(msgToAdd);
 		return _this();
 	}
@@ -597,6 +645,9 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return all headers in a {@link HashMap}
 	 */
 	protected Map<String, String> headers() {
+		if (frozen) {
+			return Collections.unmodifiableMap(headers);
+		}
 		return headers;
 	}
 
@@ -608,6 +659,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T header(final String name, final String value) {
+		checkNotFrozen();
 		headers.put(name, value);
 		return _this();
 	}
@@ -619,6 +671,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T headers(final Map<String, String> headersToSet) {
+		checkNotFrozen();
 		headers.putAll(headersToSet);
 		return _this();
 	}
@@ -681,8 +734,12 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * Returns the list of all {@link EmailAttachment}s.
 	 *
 	 * @return List of {@link EmailAttachment}s. Returns empty list if no attachment is available.
+	 * List is not modifiable when email is frozen.
 	 */
 	public List<EmailAttachment<? extends DataSource>> attachments() {
+		if (frozen) {
+			return Collections.unmodifiableList(attachments);
+		}
 		return attachments;
 	}
 
@@ -693,6 +750,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	protected T storeAttachments(final List<EmailAttachment<? extends DataSource>> attachments) {
+		checkNotFrozen();
 		this.attachments.addAll(attachments);
 		return _this();
 	}
@@ -704,6 +762,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	protected T storeAttachment(final EmailAttachment<? extends DataSource> attachment) {
+		checkNotFrozen();
 		this.attachments.add(attachment);
 		return _this();
 	}
@@ -733,14 +792,19 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	}
 
 	/**
+	 * Adds attachment built from {@link EmailAttachmentBuilder}. The {@link DataSource}
+	 * is not copied, e.g. file content is read only when email is sent.
+	 *
 	 * @see #attachment(EmailAttachment)
+	 * @see EmailAttachmentBuilder#build()
 	 */
 	public T attachment(final EmailAttachmentBuilder builder) {
-		return attachment(builder.buildByteArrayDataSource());
+		return attachment(builder.build());
 	}
 
 	/**
 	 * Attaches the embedded attachment: Content ID will be set if missing from attachment's file name.
+	 * The {@link DataSource} is not copied.
 	 *
 	 * @param builder {@link EmailAttachmentBuilder}
 	 * @return this
@@ -754,7 +818,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 		// content disposition will be set to "inline"
 		builder.inline(true);
 
-		return embeddedAttachment(builder.buildByteArrayDataSource());
+		return embeddedAttachment(builder.build());
 	}
 
 	/**
@@ -793,6 +857,7 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return this
 	 */
 	public T sentDate(final Date date) {
+		checkNotFrozen();
 		sentDate = date;
 		return _this();
 	}
@@ -805,6 +870,9 @@ public abstract class CommonEmail<T extends CommonEmail<T>> {
 	 * @return email's sent date or {@code null} if it will be set later.
 	 */
 	public Date sentDate() {
+		if (frozen && sentDate != null) {
+			return (Date) sentDate.clone();
+		}
 		return sentDate;
 	}
 
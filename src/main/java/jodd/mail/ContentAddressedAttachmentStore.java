@@ -0,0 +1,231 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * {@link AttachmentStore} that stores each distinct content only once. Files are named
+ * by the SHA-256 hash of their content and sharded in two levels of folders, e.g.
+ * {@code 3f/a2/3fa2...}. The hash is computed while the content is streamed.
+ * <p>
+ * Each file has its reference count, stored next to it, that is increased on every
+ * store of the same content and decreased on {@link #release(File)}; the file is
+ * deleted when the count drops to zero. Contents smaller than the memory threshold
+ * are hashed in memory, so repeated small attachments are not written at all.
+ * <p>
+ * The store is thread-safe, but the same folder must not be used by several
+ * stores or processes at once.
+ */
+public class ContentAddressedAttachmentStore implements AttachmentStore {
+
+	/**
+	 * Default size of content that is hashed in memory, before it is written to disk.
+	 */
+	public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+	private static final String REFS_SUFFIX = ".refs";
+	private static final int LOCK_STRIPES = 64;
+
+	private final File root;
+	private final int memoryThreshold;
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	public ContentAddressedAttachmentStore(final File root) {
+		this(root, DEFAULT_MEMORY_THRESHOLD);
+	}
+
+	/**
+	 * Creates the store in given root folder.
+	 *
+	 * @param memoryThreshold size of content, in bytes, that is hashed in memory;
+	 *                        larger contents are hashed while written to a temporary file.
+	 */
+	public ContentAddressedAttachmentStore(final File root, final int memoryThreshold) {
+		if (memoryThreshold < 0) {
+			throw new MailException("Memory threshold must not be negative");
+		}
+		this.root = root;
+		this.memoryThreshold = memoryThreshold;
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Stores the content, unless the same content is already stored. The name is ignored.
+	 */
+	@Override
+	public File store(final String name, final InputStream content) throws IOException {
+		final MessageDigest digest = sha256();
+		final ByteArrayOutputStream head = new ByteArrayOutputStream();
+		final byte[] chunk = new byte[8192];
+
+		int read;
+		while (head.size() <= memoryThreshold && (read = content.read(chunk)) != -1) {
+			digest.update(chunk, 0, read);
+			head.write(chunk, 0, read);
+		}
+
+		if (head.size() <= memoryThreshold) {
+			final String hash = toHex(digest.digest());
+			final File file = fileOf(hash);
+			synchronized (lockOf(hash)) {
+				if (!file.exists()) {
+					final Path temp = createTempFile();
+					try {
+						try (final OutputStream out = Files.newOutputStream(temp)) {
+							head.writeTo(out);
+						}
+						moveTo(temp, file);
+					} finally {
+						Files.deleteIfExists(temp);
+					}
+				}
+				writeReferences(file, readReferences(file) + 1);
+			}
+			return file;
+		}
+
+		final Path temp = createTempFile();
+		try {
+			final InputStream rest = new DigestInputStream(content, digest);
+			EmailUtil.transferToFile(new SequenceInputStream(new ByteArrayInputStream(head.toByteArray()), rest), temp.toFile());
+
+			final String hash = toHex(digest.digest());
+			final File file = fileOf(hash);
+			synchronized (lockOf(hash)) {
+				if (!file.exists()) {
+					moveTo(temp, file);
+				}
+				writeReferences(file, readReferences(file) + 1);
+			}
+			return file;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Decreases the reference count of the stored content and deletes it
+	 * when it is no longer referenced.
+	 */
+	@Override
+	public boolean release(final File file) throws IOException {
+		final String hash = checkStored(file);
+		synchronized (lockOf(hash)) {
+			final int references = readReferences(file) - 1;
+			if (references > 0) {
+				writeReferences(file, references);
+				return false;
+			}
+			Files.deleteIfExists(refsFileOf(file).toPath());
+			return Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	/**
+	 * Returns the number of references of the stored content.
+	 */
+	public int references(final File file) throws IOException {
+		final String hash = checkStored(file);
+		synchronized (lockOf(hash)) {
+			return readReferences(file);
+		}
+	}
+
+	// ---------------------------------------------------------------- internal
+
+	private File fileOf(final String hash) {
+		final File shard = new File(new File(root, hash.substring(0, 2)), hash.substring(2, 4));
+		return new File(shard, hash);
+	}
+
+	private static File refsFileOf(final File file) {
+		return new File(file.getParentFile(), file.getName() + REFS_SUFFIX);
+	}
+
+	private Object lockOf(final String hash) {
+		return locks[(hash.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+	}
+
+	private String checkStored(final File file) {
+		final String hash = file.getName();
+		if (hash.length() != 64 || !fileOf(hash).equals(file)) {
+			throw new MailException("File is not in the attachment store: " + file);
+		}
+		return hash;
+	}
+
+	private Path createTempFile() throws IOException {
+		Files.createDirectories(root.toPath());
+		return Files.createTempFile(root.toPath(), "incoming-", ".tmp");
+	}
+
+	private static void moveTo(final Path temp, final File file) throws IOException {
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static int readReferences(final File file) throws IOException {
+		final File refsFile = refsFileOf(file);
+		if (!refsFile.exists()) {
+			return 0;
+		}
+		final String value = new String(Files.readAllBytes(refsFile.toPath()), StandardCharsets.US_ASCII);
+		return Integer.parseInt(value.trim());
+	}
+
+	private static void writeReferences(final File file, final int references) throws IOException {
+		Files.write(refsFileOf(file).toPath(), String.valueOf(references).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException nsaex) {
+			throw new MailException(nsaex);
+		}
+	}
+
+	private static String toHex(final byte[] hash) {
+		return String.format("%064x", new BigInteger(1, hash));
+	}
+}
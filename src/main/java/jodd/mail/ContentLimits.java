@@ -0,0 +1,83 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+/**
+ * Limits of the content received for each part of a received message, including
+ * parts of attached messages. Every text body longer than the limit is truncated,
+ * while attachments larger than the limit are not downloaded at all; only their
+ * metadata is received. Truncated text bodies are downloaded only up to the limit
+ * when parts can be read partially, see {@link MailServer.Builder#fetchSize(int)};
+ * otherwise the whole body is downloaded and then truncated.
+ *
+ * @see ReceiverBuilder#maxTextSize(int)
+ * @see ReceiverBuilder#maxAttachmentSize(long)
+ */
+public class ContentLimits {
+
+	/**
+	 * No limits, the whole content is downloaded.
+	 */
+	public static final ContentLimits NONE = new ContentLimits(0, 0);
+
+	private final int maxTextSize;
+	private final long maxAttachmentSize;
+
+	/**
+	 * Creates content limits. Zero means no limit.
+	 *
+	 * @param maxTextSize       maximal number of bytes downloaded for each text body.
+	 * @param maxAttachmentSize maximal size of downloaded attachments, in bytes.
+	 */
+	public ContentLimits(final int maxTextSize, final long maxAttachmentSize) {
+		if (maxTextSize < 0 || maxAttachmentSize < 0) {
+			throw new MailException("Content limits must not be negative");
+		}
+		this.maxTextSize = maxTextSize;
+		this.maxAttachmentSize = maxAttachmentSize;
+	}
+
+	/**
+	 * Returns maximal number of bytes downloaded for each text body, or {@code 0} if not limited.
+	 */
+	public int maxTextSize() {
+		return maxTextSize;
+	}
+
+	/**
+	 * Returns maximal size of downloaded attachments, or {@code 0} if not limited.
+	 */
+	public long maxAttachmentSize() {
+		return maxAttachmentSize;
+	}
+
+	/**
+	 * Returns {@code true} if any of limits is set.
+	 */
+	public boolean isLimited() {
+		return maxTextSize > 0 || maxAttachmentSize > 0;
+	}
+}
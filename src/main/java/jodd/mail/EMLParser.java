@@ -34,6 +34,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 
@@ -46,6 +47,42 @@ public class EMLParser extends EMLProperties<EMLParser> {
 		return new EMLParser();
 	}
 
+	private boolean lazy;
+	private AttachmentStore attachmentStore;
+	private SpillThresholds spillThresholds;
+
+	/**
+	 * Parses the content of emails on demand, when it is accessed for the first time.
+	 * Useful with {@link #openMbox(File)}, where the content is read from the file.
+	 *
+	 * @return this
+	 */
+	public EMLParser lazy() {
+		this.lazy = true;
+		return this;
+	}
+
+	/**
+	 * Stores attachments of parsed emails in given {@link AttachmentStore}.
+	 *
+	 * @return this
+	 */
+	public EMLParser storeAttachmentsIn(final AttachmentStore attachmentStore) {
+		this.attachmentStore = attachmentStore;
+		return this;
+	}
+
+	/**
+	 * Keeps attachments of parsed emails in memory only up to given sizes.
+	 *
+	 * @return this
+	 * @see MailServer.Builder#spillAttachments(int, int, File)
+	 */
+	public EMLParser spillAttachments(final int heapThreshold, final int offHeapThreshold, final File spillFolder) {
+		this.spillThresholds = new SpillThresholds(heapThreshold, offHeapThreshold, spillFolder);
+		return this;
+	}
+
 	/**
 	 * Parses EML with provided EML content.
 	 *
@@ -109,6 +146,25 @@ public class EMLParser extends EMLProperties<EMLParser> {
 		}
 	}
 
+	/**
+	 * Opens a mbox archive, or a single EML file, for reading. Messages are read from the
+	 * file only when they are accessed, and the file remains open until the returned
+	 * {@link MboxReader} is closed.
+	 *
+	 * @param mboxFile mbox or EML {@link File}.
+	 * @return {@link MboxReader}.
+	 */
+	public MboxReader openMbox(final File mboxFile) {
+		if (getSession() == null) {
+			createSession(getProperties());
+		}
+		try {
+			return new MboxReader(mboxFile, getSession(), this);
+		} catch (final IOException ioex) {
+			throw new MailException("Failed to open mbox: " + mboxFile, ioex);
+		}
+	}
+
 	/**
 	 * Parses the EML content. If {@link Session} is not created, default one will be used.
 	 *
@@ -123,9 +179,13 @@ public class EMLParser extends EMLProperties<EMLParser> {
 
 		try {
 			final MimeMessage message = new MimeMessage(getSession(), emlContentInputStream);
-			return new ReceivedEmail(message, false, null);
+			return createReceivedEmail(message);
 		} finally {
 			IOUtil.close(emlContentInputStream);
 		}
 	}
+
+	ReceivedEmail createReceivedEmail(final MimeMessage message) {
+		return new ReceivedEmail(message, false, new ReceiveSettings(attachmentStore, spillThresholds, null).withLazy(lazy));
+	}
 }
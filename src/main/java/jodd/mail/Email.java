@@ -48,18 +48,18 @@ public class Email extends CommonEmail<Email> {
 
 			// from / reply-to
 			.from(from())
-			.replyTo(replyTo())
+			.replyTo(replyTo().clone())
 
 			// recipients
-			.to(to())
-			.cc(cc())
-			.bcc(bcc())
+			.to(to().clone())
+			.cc(cc().clone())
+			.bcc(bcc().clone())
 
 			// subject
 			.subject(subject(), subjectEncoding())
 
 			// dates
-			.sentDate(sentDate())
+			.sentDate(sentDate() != null ? (Date) sentDate().clone() : null)
 
 			// headers - includes priority
 			.headers(headers())
@@ -69,6 +69,20 @@ public class Email extends CommonEmail<Email> {
 			.message(messages());
 	}
 
+	/**
+	 * Returns frozen copy of this email, that can not be modified anymore.
+	 * Addresses, dates and lists are copied, and getters of the frozen email
+	 * return copies of them. Frozen email can be safely shared between threads,
+	 * e.g. when the same email is sent by many senders. Data sources of attachments
+	 * are shared with this email. Returns this instance if already frozen.
+	 */
+	public Email freeze() {
+		if (isFrozen()) {
+			return this;
+		}
+		return clone().markFrozen();
+	}
+
 	// ---------------------------------------------------------------- date
 
 	/**
@@ -95,6 +109,7 @@ public class Email extends CommonEmail<Email> {
 	 * @return this
 	 */
 	public Email bcc(final EmailAddress to) {
+		checkNotFrozen();
 		this.bcc = ArraysUtil.append(this.bcc, to);
 		return _this();
 	}
@@ -162,6 +177,7 @@ public class Email extends CommonEmail<Email> {
 	 * @return this
 	 */
 	public Email bcc(final EmailAddress... bccs) {
+		checkNotFrozen();
 		this.bcc = ArraysUtil.join(this.bcc, valueOrEmptyArray(bccs));
 		return _this();
 	}
@@ -170,13 +186,14 @@ public class Email extends CommonEmail<Email> {
 	 * Returns BCC addresses.
 	 */
 	public EmailAddress[] bcc() {
-		return bcc;
+		return isFrozen() ? bcc.clone() : bcc;
 	}
 
 	/**
 	 * Resets BCC addresses.
 	 */
 	public Email resetBcc() {
+		checkNotFrozen();
 		this.bcc = EmailAddress.EMPTY_ARRAY;
 		return _this();
 	}
@@ -26,16 +26,24 @@
 package jodd.mail;
 
 import jakarta.activation.DataSource;
+import jakarta.activation.FileDataSource;
 import jakarta.mail.internet.MimeUtility;
 import jodd.io.IOUtil;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
  * Email attachment.
@@ -247,45 +255,141 @@ public class EmailAttachment<T extends DataSource> {
 		return this;
 	}
 
+	// ---------------------------------------------------------------- metadata
+
+	/**
+	 * Digest of received attachment, as hex string.
+	 */
+	private String digest;
+
+	/**
+	 * Algorithm of the digest.
+	 */
+	private String digestAlgorithm;
+
+	/**
+	 * Content type detected from the content of received attachment.
+	 */
+	private String detectedContentType;
+
+	/**
+	 * Returns the digest of the content, as lower-case hex string, computed while
+	 * the attachment was received. Returns {@code null} if not computed.
+	 *
+	 * @see MailServer.Builder#attachmentDigest(String)
+	 */
+	public String getDigest() {
+		return digest;
+	}
+
+	/**
+	 * Returns the algorithm of the {@link #getDigest() digest}, e.g. {@code SHA-256},
+	 * or {@code null} if the digest is not computed.
+	 */
+	public String getDigestAlgorithm() {
+		return digestAlgorithm;
+	}
+
+	/**
+	 * Sets the digest of the content.
+	 */
+	protected EmailAttachment<T> setDigest(final String digestAlgorithm, final String digest) {
+		this.digestAlgorithm = digestAlgorithm;
+		this.digest = digest;
+		return this;
+	}
+
+	/**
+	 * Returns the content type detected from the first bytes of received attachment,
+	 * or {@code null} if it is not recognized. It may differ from the declared
+	 * {@link #getContentType() content type}.
+	 */
+	public String getDetectedContentType() {
+		return detectedContentType;
+	}
+
+	/**
+	 * Sets the detected content type.
+	 */
+	protected EmailAttachment<T> setDetectedContentType(final String detectedContentType) {
+		this.detectedContentType = detectedContentType;
+		return this;
+	}
+
 	// ---------------------------------------------------------------- content methods
 
 	/**
-	 * Returns byte content of the attachment.
+	 * Returns byte content of the attachment. Content stored in a file or kept in a
+	 * {@link SpillingDataSource} buffer is read directly into an array of its size,
+	 * other content into an array of the attachment {@link #getSize() size} when known.
 	 *
 	 * @return byte array with content of the attachment.
 	 */
 	public byte[] toByteArray() {
-		final ByteArrayOutputStream out;
-		if (size != -1) {
-			out = new ByteArrayOutputStream(size);
-		} else {
-			out = new ByteArrayOutputStream();
+		final File file = storedFile();
+		try {
+			if (file != null) {
+				return Files.readAllBytes(file.toPath());
+			}
+			if (getDataSource() instanceof SpillingDataSource) {
+				final ByteBuffer buffer = ((SpillingDataSource) getDataSource()).getBuffer();
+				final byte[] bytes = new byte[buffer.remaining()];
+				buffer.get(bytes);
+				return bytes;
+			}
+			if (size != -1) {
+				return readContent(size);
+			}
 		}
+		catch (final IOException ioex) {
+			throw new MailException(ioex);
+		}
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
 		writeToStream(out);
 		return out.toByteArray();
 	}
 
 	/**
-	 * Saves attachment to a file.
+	 * Reads the content into an array of expected size. The array is shrunk when the
+	 * content is shorter, and extended when the content is longer than expected.
+	 */
+	private byte[] readContent(final int expectedSize) throws IOException {
+		try (final InputStream input = getDataSource().getInputStream()) {
+			final byte[] bytes = new byte[expectedSize];
+			int count = 0;
+			int read;
+			while (count < expectedSize && (read = input.read(bytes, count, expectedSize - count)) != -1) {
+				count += read;
+			}
+			if (count < expectedSize) {
+				return Arrays.copyOf(bytes, count);
+			}
+			final int next = input.read();
+			if (next == -1) {
+				return bytes;
+			}
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			out.write(bytes);
+			out.write(next);
+			IOUtil.copy(input, out);
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Saves attachment to a file. Content stored in a file is copied without
+	 * passing through the Java heap.
 	 *
 	 * @param destination The destination file to be written.
 	 */
 	public void writeToFile(final File destination) {
-		InputStream input = null;
-		OutputStream output = null;
-		try {
-			input = getDataSource().getInputStream();
-			output = new FileOutputStream(destination);
-
-			IOUtil.copy(input, output);
+		try (final FileChannel output = FileChannel.open(destination.toPath(),
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			transferTo(output);
 		}
 		catch (final IOException ioex) {
 			throw new MailException(ioex);
 		}
-		finally {
-			IOUtil.close(input);
-			IOUtil.close(output);
-		}
 	}
 
 	/**
@@ -308,4 +412,96 @@ public class EmailAttachment<T extends DataSource> {
 		}
 	}
 
+	/**
+	 * Returns read-only view of the attachment content. Content stored in a file,
+	 * see {@link FileDataSource}, is memory-mapped and not copied to the Java heap.
+	 * Content of {@link SpillingDataSource} is returned as it is kept, and any
+	 * other content is read into a heap buffer.
+	 *
+	 * @return read-only {@link ByteBuffer} with the content of the attachment.
+	 * @throws MailException if the content cannot be read, or is larger than 2 GB.
+	 */
+	public ByteBuffer toByteBuffer() {
+		final File file = storedFile();
+		if (file == null) {
+			if (getDataSource() instanceof SpillingDataSource) {
+				return ((SpillingDataSource) getDataSource()).getBuffer();
+			}
+			return ByteBuffer.wrap(toByteArray()).asReadOnlyBuffer();
+		}
+		try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final long fileSize = channel.size();
+			if (fileSize > Integer.MAX_VALUE) {
+				throw new MailException("Attachment is too large to be mapped: " + file);
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+		}
+		catch (final IOException ioex) {
+			throw new MailException(ioex);
+		}
+	}
+
+	/**
+	 * Writes the attachment content to the channel. Content stored in a file is
+	 * transferred with {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+	 * i.e. without copying it to the Java heap when the platform supports it;
+	 * content kept in a direct buffer is written directly as well.
+	 * The channel is not closed.
+	 *
+	 * @param target blocking channel where attachment should be written to.
+	 * @return number of written bytes.
+	 */
+	public long transferTo(final WritableByteChannel target) {
+		final File file = storedFile();
+		try {
+			if (file != null) {
+				try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+					final long fileSize = channel.size();
+					long position = 0;
+					while (position < fileSize) {
+						position += channel.transferTo(position, fileSize - position, target);
+					}
+					return position;
+				}
+			}
+			if (getDataSource() instanceof SpillingDataSource) {
+				final ByteBuffer buffer = ((SpillingDataSource) getDataSource()).getBuffer();
+				long total = 0;
+				while (buffer.hasRemaining()) {
+					total += target.write(buffer);
+				}
+				return total;
+			}
+			try (final ReadableByteChannel source = Channels.newChannel(getDataSource().getInputStream())) {
+				final ByteBuffer buffer = ByteBuffer.allocate(8192);
+				long total = 0;
+				while (source.read(buffer) != -1) {
+					buffer.flip();
+					while (buffer.hasRemaining()) {
+						total += target.write(buffer);
+					}
+					buffer.clear();
+				}
+				return total;
+			}
+		}
+		catch (final IOException ioex) {
+			throw new MailException(ioex);
+		}
+	}
+
+	/**
+	 * Returns the file that holds the content, or {@code null} if content is not stored in a file.
+	 */
+	private File storedFile() {
+		final DataSource dataSource = getDataSource();
+		if (dataSource instanceof FileDataSource) {
+			return ((FileDataSource) dataSource).getFile();
+		}
+		if (dataSource instanceof SpillingDataSource) {
+			return ((SpillingDataSource) dataSource).getFile();
+		}
+		return null;
+	}
+
 }
@@ -197,6 +197,19 @@ public class EmailAttachmentBuilder {
 
 	// ---------------------------------------------------------------- factory/builder
 
+	/**
+	 * Creates {@link EmailAttachment} that uses the {@link DataSource} as it is, without copying
+	 * its content. File and other stream-based sources are read only when the email is written,
+	 * so the attachment content is never held in memory.
+	 *
+	 * @return {@link EmailAttachment}.
+	 * @throws MailException if {@link DataSource} is not set.
+	 */
+	public EmailAttachment<DataSource> build() throws MailException {
+		checkDataSource();
+		return new EmailAttachment<>(name, contentId, isInline, dataSource).setEmbeddedMessage(targetMessage);
+	}
+
 	/**
 	 * Creates {@link EmailAttachment}.
 	 *
@@ -241,6 +254,31 @@ public class EmailAttachmentBuilder {
 		}
 	}
 
+	/**
+	 * Creates {@link EmailAttachment} by streaming given {@link InputStream} straight into
+	 * the {@link AttachmentStore}. The content is never held in memory as a whole.
+	 * The {@link DataSource} set with {@code content()} methods is ignored.
+	 *
+	 * @param name suggested name of the stored content, see {@link AttachmentStore#store(String, InputStream)}.
+	 * @return {@link EmailAttachment} with the size of stored content.
+	 * @throws MailException if the content cannot be stored.
+	 */
+	public EmailAttachment<FileDataSource> buildFileDataSource(final String name, final AttachmentStore attachmentStore, final InputStream inputStream) throws MailException {
+		final File file;
+		try {
+			file = attachmentStore.store(name, inputStream);
+		} catch (final IOException ioexc) {
+			throw new MailException(ioexc);
+		}
+		final EmailAttachment<FileDataSource> attachment =
+			new EmailAttachment<>(this.name, contentId, isInline, new FileDataSource(file)).setEmbeddedMessage(targetMessage);
+		final long size = file.length();
+		if (size <= Integer.MAX_VALUE) {
+			attachment.setSize((int) size);
+		}
+		return attachment;
+	}
+
 	/**
 	 * Check to ensure {@link DataSource} ds is valid.
 	 *
@@ -0,0 +1,171 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import jodd.io.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Email template for bulk sending. Messages and attachments of the template
+ * {@link Email} are rendered and encoded only once, when the template is created.
+ * Each sent message reuses the encoded content and only gets its own headers:
+ * recipients, subject and other headers of the per-recipient {@link Email}.
+ * Placeholders may be used in the subject and header values, see
+ * {@link SendMailSession#sendMail(EmailTemplate, Email, java.util.Map)}; the encoded
+ * content is sent unchanged. When {@code mail.smtp.allow8bitmime} is enabled, each message
+ * is copied before sending, since the transport may convert its content to 8-bit encoding.
+ * <p>
+ * Template is immutable and can be shared between threads. The template {@link Email}
+ * should not be modified after the template is created.
+ *
+ * @see SendMailSession#sendMail(EmailTemplate, Email)
+ */
+public class EmailTemplate {
+
+	private static final String MIME_VERSION = "MIME-Version";
+	private static final String CONTENT_TYPE = "Content-Type";
+	private static final String CONTENT_TRANSFER_ENCODING = "Content-Transfer-Encoding";
+	private static final byte[] CRLF = {'\r', '\n'};
+
+	/**
+	 * Creates new template from given {@link Email}. Recipients of the template
+	 * email are ignored; its sender, subject and headers are used as defaults.
+	 */
+	public static EmailTemplate of(final Email email) {
+		Objects.requireNonNull(email, "Template email cannot be null");
+		return new EmailTemplate(email);
+	}
+
+	private final Email email;
+	private final String contentType;
+	private final String contentTransferEncoding;
+	private final byte[] content;
+
+	protected EmailTemplate(final Email email) {
+		this.email = email;
+
+		final Session session = Session.getInstance(new Properties());
+		try {
+			// only the content is rendered, headers are set for each message
+			final MimeMessage rendered = new MimeMessage(session);
+			new SendMailSession(session, null).addBodyData(email, rendered);
+			rendered.saveChanges();
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			rendered.writeTo(out);
+
+			final MimeMessage parsed = new MimeMessage(session, new ByteArrayInputStream(out.toByteArray()));
+			this.contentType = parsed.getHeader(CONTENT_TYPE, null);
+			this.contentTransferEncoding = parsed.getHeader(CONTENT_TRANSFER_ENCODING, null);
+
+			final ByteArrayOutputStream contentOut = new ByteArrayOutputStream();
+			try (final InputStream rawContent = parsed.getRawInputStream()) {
+				IOUtil.copy(rawContent, contentOut);
+			}
+			this.content = contentOut.toByteArray();
+		}
+		catch (final MessagingException | IOException ex) {
+			throw new MailException("Failed to render email template", ex);
+		}
+	}
+
+	/**
+	 * Returns the template {@link Email}.
+	 */
+	public Email email() {
+		return email;
+	}
+
+	/**
+	 * Returns the size of encoded content in bytes.
+	 */
+	public int getContentSize() {
+		return content.length;
+	}
+
+	/**
+	 * Creates new {@link MimeMessage} that shares the encoded content of this template.
+	 * Content headers are already set; all other headers are set by the caller.
+	 */
+	MimeMessage createMimeMessage(final Session session) throws MessagingException {
+		final TemplateMimeMessage msg = new TemplateMimeMessage(session, content);
+		msg.setHeader(MIME_VERSION, "1.0");
+		msg.setHeader(CONTENT_TYPE, contentType);
+		if (contentTransferEncoding != null) {
+			msg.setHeader(CONTENT_TRANSFER_ENCODING, contentTransferEncoding);
+		}
+		return msg;
+	}
+
+	/**
+	 * {@link MimeMessage} with pre-encoded content. Content is written as it is,
+	 * without parsing or encoding it again.
+	 */
+	private static class TemplateMimeMessage extends MimeMessage {
+
+		private TemplateMimeMessage(final Session session, final byte[] content) {
+			super(session);
+			this.content = content;
+		}
+
+		/**
+		 * Updates only the Message-ID, since content headers are already set.
+		 */
+		@Override
+		protected void updateHeaders() throws MessagingException {
+			updateMessageID();
+		}
+
+		@Override
+		public void writeTo(final OutputStream os, final String[] ignoreList) throws IOException, MessagingException {
+			if (!saved) {
+				saveChanges();
+			}
+
+			final Enumeration<String> headerLines = getNonMatchingHeaderLines(ignoreList);
+			while (headerLines.hasMoreElements()) {
+				os.write(headerLines.nextElement().getBytes(StandardCharsets.UTF_8));
+				os.write(CRLF);
+			}
+			os.write(CRLF);
+
+			os.write(content);
+			os.flush();
+		}
+	}
+}
@@ -40,7 +40,12 @@ import jodd.util.StringPool;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Properties;
 import java.util.function.Consumer;
 
@@ -172,6 +177,15 @@ public class EmailUtil {
 	 * @return {@link ReceiveMailSession}.
 	 */
 	public static ReceiveMailSession createSession(final String protocol, final Properties sessionProperties, final Authenticator authenticator, final File attachmentStorage, final Consumer<String> debugConsumer) {
+		return createSession(protocol, sessionProperties, authenticator, ReceiveSettings.of(attachmentStorage), debugConsumer);
+	}
+
+	/**
+	 * Creates {@link ReceiveMailSession} that receives emails with given {@link ReceiveSettings}.
+	 *
+	 * @see #createSession(String, Properties, Authenticator, File, Consumer)
+	 */
+	static ReceiveMailSession createSession(final String protocol, final Properties sessionProperties, final Authenticator authenticator, final ReceiveSettings settings, final Consumer<String> debugConsumer) {
 		final Session session = Session.getInstance(sessionProperties, authenticator);
 		if (debugConsumer != null) {
 			session.setDebugOut(new PrintStream(new ByteArrayOutputStream() {
@@ -200,7 +214,7 @@ public class EmailUtil {
 			final String errMsg = String.format("Failed to create %s session", protocol);
 			throw new MailException(errMsg, nspex);
 		}
-		return new ReceiveMailSession(session, store, attachmentStorage);
+		return new ReceiveMailSession(session, store, settings);
 	}
 
 	/**
@@ -229,4 +243,28 @@ public class EmailUtil {
 		return fileName.replaceAll("[^a-zA-Z0-9.-]", "_");
 	}
 
+	/**
+	 * Maximal number of bytes transferred to a file at once.
+	 */
+	private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Copies the input stream to a file using {@link FileChannel#transferFrom(ReadableByteChannel, long, long)},
+	 * through a small buffer. Existing file is overwritten. Returns the number of copied bytes.
+	 */
+	static long transferToFile(final InputStream inputStream, final File file) throws IOException {
+		try (
+			final ReadableByteChannel source = Channels.newChannel(inputStream);
+			final FileChannel target = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+		) {
+			long position = 0;
+			long transferred;
+			while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+				position += transferred;
+			}
+			return position;
+		}
+	}
+
 }
@@ -0,0 +1,329 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.SharedByteArrayInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Sends an email with large number of recipients. Recipients are grouped by their
+ * domain and each group is sent through the {@link SmtpConnectionPool} of its relay,
+ * in parallel. Groups are further split so no message has more than the maximal
+ * number of recipients. The message is created and encoded only once; each part is
+ * sent as a separate SMTP transaction with the same message, only the envelope
+ * recipients differ.
+ * <p>
+ * The number of recipients sent over a single connection may be limited with
+ * {@link Builder#maxRecipientsPerConnection(int)}; the number of messages per connection
+ * is limited by the pool, see {@link SmtpConnectionPool.Builder#maxMessagesPerConnection(int)}.
+ * Pools are not closed by this sender.
+ */
+public class FanOutSender implements AutoCloseable {
+
+	/**
+	 * Returns new sender builder that uses given {@link SmtpConnectionPool} for all domains
+	 * without a dedicated relay.
+	 */
+	public static Builder create(final SmtpConnectionPool defaultPool) {
+		return new Builder(defaultPool);
+	}
+
+	private final SmtpConnectionPool defaultPool;
+	private final Map<String, SmtpConnectionPool> relays;
+	private final int maxRecipientsPerMessage;
+	private final int maxRecipientsPerConnection;
+	private final ExecutorService executor;
+
+	protected FanOutSender(final Builder builder) {
+		this.defaultPool = builder.defaultPool;
+		this.relays = new HashMap<>(builder.relays);
+		this.maxRecipientsPerMessage = builder.maxRecipientsPerMessage;
+		this.maxRecipientsPerConnection = builder.maxRecipientsPerConnection;
+		this.executor = Executors.newFixedThreadPool(builder.workers, resolveThreadFactory(builder));
+	}
+
+	/**
+	 * Sends email to all its recipients (TO, CC and BCC), fanned out by recipient domain.
+	 * Blocks until all parts are sent.
+	 *
+	 * @param email {@link Email} to send.
+	 * @return array of {@link SendResult}s, one for each sent part.
+	 */
+	public SendResult[] send(final Email email) {
+		final Email frozenEmail = email.freeze();
+		final List<Part> parts = splitRecipients(frozenEmail);
+
+		final MimeMessage msg;
+		try {
+			msg = createMessage(frozenEmail);
+		}
+		catch (final MessagingException | IOException | MailException ex) {
+			final MailException mex = ex instanceof MailException ? (MailException) ex : new MailException("Failed to create message", ex);
+			final SendResult[] results = new SendResult[parts.size()];
+			for (int i = 0; i < results.length; i++) {
+				results[i] = new SendResult(frozenEmail, null, EmailAddress.EMPTY_ARRAY, parts.get(i).recipients, mex);
+			}
+			return results;
+		}
+
+		final List<CompletableFuture<SendResult>> futures = new ArrayList<>(parts.size());
+		for (final Part part : parts) {
+			final SmtpConnectionPool pool = resolvePool(part.domain);
+			futures.add(CompletableFuture.supplyAsync(() -> sendPart(pool, frozenEmail, msg, part.recipients), executor));
+		}
+
+		final SendResult[] results = new SendResult[futures.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = futures.get(i).join();
+		}
+		return results;
+	}
+
+	/**
+	 * Stops the workers. Parts that are being sent are completed.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	// ---------------------------------------------------------------- internal
+
+	/**
+	 * Part of the email recipients that is sent as a single message.
+	 */
+	protected static class Part {
+		protected final String domain;
+		protected final EmailAddress[] recipients;
+
+		protected Part(final String domain, final EmailAddress[] recipients) {
+			this.domain = domain;
+			this.recipients = recipients;
+		}
+	}
+
+	/**
+	 * Creates the message once, for all parts. The message is encoded and parsed back,
+	 * so sending does not encode the content again and does not modify the message,
+	 * that is then shared between the workers.
+	 */
+	protected MimeMessage createMessage(final Email email) throws MessagingException, IOException {
+		final SendMailSession session = defaultPool.smtpServer().createSession();
+		final MimeMessage msg = session.createMessage(email);
+		msg.saveChanges();
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		msg.writeTo(out);
+		return new MimeMessage(session.getSession(), new SharedByteArrayInputStream(out.toByteArray()));
+	}
+
+	/**
+	 * Sends single part of the email using the pooled connection.
+	 */
+	protected SendResult sendPart(final SmtpConnectionPool pool, final Email email, final MimeMessage msg, final EmailAddress[] recipients) {
+		try (final SendMailSession session = borrowSession(pool, recipients.length)) {
+			final MimeMessage partMsg = session.allows8BitMime() ? new MimeMessage(msg) : msg;
+			return session.trySendMail(email, partMsg, EmailAddress.convert(recipients));
+		}
+		catch (final MessagingException msgexc) {
+			return new SendResult(email, null, EmailAddress.EMPTY_ARRAY, recipients, new MailException("Invalid recipients", msgexc));
+		}
+		catch (final MailException mex) {
+			return new SendResult(email, null, EmailAddress.EMPTY_ARRAY, recipients, mex);
+		}
+	}
+
+	/**
+	 * Borrows a session that may send to given number of recipients without exceeding
+	 * {@link Builder#maxRecipientsPerConnection(int)}. Connections that would exceed the
+	 * limit are closed, so the pool replaces them with new ones.
+	 */
+	private SendMailSession borrowSession(final SmtpConnectionPool pool, final int recipientsCount) {
+		SendMailSession session = pool.borrowSession();
+		while (maxRecipientsPerConnection > 0 && session instanceof SmtpConnectionPool.PooledSession) {
+			final SmtpConnectionPool.PooledSession pooledSession = (SmtpConnectionPool.PooledSession) session;
+			final int sentCount = pooledSession.recipientCount();
+			if (sentCount == 0 || sentCount + recipientsCount <= maxRecipientsPerConnection) {
+				break;
+			}
+			try {
+				pooledSession.closeConnection();
+			}
+			catch (final MailException ignore) {
+			}
+			pooledSession.close();
+			session = pool.borrowSession();
+		}
+		return session;
+	}
+
+	/**
+	 * Groups all recipients by domain and splits each group into parts
+	 * of at most {@link Builder#maxRecipientsPerMessage(int)} recipients.
+	 */
+	protected List<Part> splitRecipients(final Email email) {
+		final Map<String, List<EmailAddress>> domains = new LinkedHashMap<>();
+		addRecipients(domains, email.to());
+		addRecipients(domains, email.cc());
+		addRecipients(domains, email.bcc());
+
+		final List<Part> parts = new ArrayList<>();
+		for (final Map.Entry<String, List<EmailAddress>> entry : domains.entrySet()) {
+			final List<EmailAddress> domainRecipients = entry.getValue();
+			final int total = domainRecipients.size();
+			for (int from = 0; from < total; from += maxRecipientsPerMessage) {
+				final int to = Math.min(from + maxRecipientsPerMessage, total);
+				parts.add(new Part(entry.getKey(), domainRecipients.subList(from, to).toArray(EmailAddress.EMPTY_ARRAY)));
+			}
+		}
+		return parts;
+	}
+
+	private static void addRecipients(final Map<String, List<EmailAddress>> domains, final EmailAddress[] recipients) {
+		for (final EmailAddress recipient : recipients) {
+			domains.computeIfAbsent(domainOf(recipient.getEmail()), domain -> new ArrayList<>()).add(recipient);
+		}
+	}
+
+	private SmtpConnectionPool resolvePool(final String domain) {
+		final SmtpConnectionPool pool = relays.get(domain);
+		return pool != null ? pool : defaultPool;
+	}
+
+	/**
+	 * Returns lower-cased domain of an email address.
+	 */
+	static String domainOf(final String email) {
+		final int atNdx = email.lastIndexOf('@');
+		final String domain = atNdx == -1 ? email : email.substring(atNdx + 1);
+		return domain.toLowerCase(Locale.ROOT);
+	}
+
+	private static ThreadFactory resolveThreadFactory(final Builder builder) {
+		if (builder.virtualThreads) {
+			return MailThreads.virtualThreadFactory("jodd-mail-fanout-");
+		}
+		return MailThreads.platformThreadFactory("jodd-mail-fanout-");
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Builder of {@link FanOutSender}.
+	 */
+	public static class Builder {
+		private final SmtpConnectionPool defaultPool;
+		private final Map<String, SmtpConnectionPool> relays = new HashMap<>();
+		private int maxRecipientsPerMessage = 100;
+		private int maxRecipientsPerConnection = 0;
+		private int workers = Runtime.getRuntime().availableProcessors();
+		private boolean virtualThreads;
+
+		protected Builder(final SmtpConnectionPool defaultPool) {
+			Objects.requireNonNull(defaultPool, "SMTP connection pool cannot be null");
+			this.defaultPool = defaultPool;
+		}
+
+		/**
+		 * Sends emails for recipients of given domain through the relay's connection pool.
+		 */
+		public Builder relay(final String domain, final SmtpConnectionPool pool) {
+			Objects.requireNonNull(domain, "Domain cannot be null");
+			Objects.requireNonNull(pool, "SMTP connection pool cannot be null");
+			this.relays.put(domain.toLowerCase(Locale.ROOT), pool);
+			return this;
+		}
+
+		/**
+		 * Sets maximal number of recipients of a single message.
+		 * By default, this is {@code 100}, as required by RFC 5321.
+		 */
+		public Builder maxRecipientsPerMessage(final int maxRecipientsPerMessage) {
+			this.maxRecipientsPerMessage = maxRecipientsPerMessage;
+			return this;
+		}
+
+		/**
+		 * Sets maximal number of envelope recipients sent over a single connection.
+		 * When a connection reaches the limit, it is closed and a new one is opened.
+		 * By default, this is {@code 0}, i.e. not limited.
+		 */
+		public Builder maxRecipientsPerConnection(final int maxRecipientsPerConnection) {
+			this.maxRecipientsPerConnection = maxRecipientsPerConnection;
+			return this;
+		}
+
+		/**
+		 * Sets number of workers, i.e. number of messages sent in parallel.
+		 * By default, this is the number of available processors.
+		 */
+		public Builder workers(final int workers) {
+			this.workers = workers;
+			return this;
+		}
+
+		/**
+		 * Runs workers on virtual threads when the JVM supports them (Java 21+).
+		 * On older JVMs this flag is ignored and platform threads are used.
+		 */
+		public Builder virtualThreads(final boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
+		/**
+		 * Creates new {@link FanOutSender}.
+		 */
+		public FanOutSender build() {
+			if (maxRecipientsPerMessage <= 0) {
+				throw new MailException("Maximal number of recipients per message must be positive");
+			}
+			if (maxRecipientsPerConnection < 0) {
+				throw new MailException("Maximal number of recipients per connection can not be negative");
+			}
+			if (workers <= 0) {
+				throw new MailException("Number of workers must be positive");
+			}
+			return new FanOutSender(this);
+		}
+	}
+}
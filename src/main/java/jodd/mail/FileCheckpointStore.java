@@ -0,0 +1,88 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * {@link MailboxCheckpointStore} that keeps checkpoints of all folders in a single
+ * properties file. The file is replaced atomically on every save.
+ */
+public class FileCheckpointStore implements MailboxCheckpointStore {
+
+	private final File file;
+	private final Properties checkpoints = new Properties();
+
+	public FileCheckpointStore(final File file) {
+		this.file = file;
+		if (file.exists()) {
+			try (final InputStream in = Files.newInputStream(file.toPath())) {
+				checkpoints.load(in);
+			} catch (final IOException ioex) {
+				throw new MailException("Failed to read checkpoints: " + file, ioex);
+			}
+		}
+	}
+
+	@Override
+	public synchronized MailboxCheckpoint load(final String folderName) {
+		final String value = checkpoints.getProperty(folderName);
+		if (value == null) {
+			return null;
+		}
+		final int ndx = value.indexOf(':');
+		try {
+			return new MailboxCheckpoint(Long.parseLong(value.substring(0, ndx)), Long.parseLong(value.substring(ndx + 1)));
+		} catch (final RuntimeException ex) {
+			throw new MailException("Invalid checkpoint of folder " + folderName + ": " + value, ex);
+		}
+	}
+
+	@Override
+	public synchronized void save(final String folderName, final MailboxCheckpoint checkpoint) {
+		checkpoints.setProperty(folderName, checkpoint.toString());
+
+		File temp = null;
+		try {
+			temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+			try (final OutputStream out = Files.newOutputStream(temp.toPath())) {
+				checkpoints.store(out, null);
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException ioex) {
+			if (temp != null) {
+				temp.delete();
+			}
+			throw new MailException("Failed to write checkpoints: " + file, ioex);
+		}
+	}
+}
@@ -0,0 +1,336 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.eclipse.angus.mail.imap.IMAPStore;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Listens for newly arrived messages of a folder and passes them to a consumer. The
+ * folder is kept in IMAP {@code IDLE}, so new messages are delivered as soon as server
+ * announces them. {@code IDLE} is re-issued before the server would time it out.
+ * When the server does not support {@code IDLE}, the folder is polled instead: the
+ * poll interval doubles while there are no new messages and resets when some arrive.
+ * <p>
+ * Listener requires a dedicated {@link ReceiveMailSession}, which must not be used
+ * by others while the listener runs. The session is not closed by the listener.
+ */
+public class ImapIdleListener implements AutoCloseable {
+
+	/**
+	 * Returns new listener builder.
+	 *
+	 * @param session  dedicated, opened session.
+	 * @param consumer consumer of new emails, invoked from the listener thread.
+	 */
+	public static Builder create(final ReceiveMailSession session, final Consumer<ReceivedEmail> consumer) {
+		return new Builder(session, consumer);
+	}
+
+	private final ReceiveMailSession session;
+	private final Consumer<ReceivedEmail> consumer;
+	private final Consumer<Exception> errorConsumer;
+	private final MailboxSync mailboxSync;
+	private final boolean useIdle;
+	private final long idleTimeout;
+	private final long minPollInterval;
+	private final long maxPollInterval;
+	private final ScheduledExecutorService scheduler;
+	private volatile boolean running;
+	private Thread thread;
+
+	protected ImapIdleListener(final Builder builder) {
+		this.session = builder.session;
+		this.consumer = builder.consumer;
+		this.errorConsumer = builder.errorConsumer;
+		this.useIdle = builder.useIdle;
+		this.idleTimeout = builder.idleTimeout;
+		this.minPollInterval = builder.minPollInterval;
+		this.maxPollInterval = builder.maxPollInterval;
+		this.mailboxSync = MailboxSync.create(session)
+			.folder(builder.folderName)
+			.checkpointStore(builder.checkpointStore)
+			.skipExisting()
+			.build();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(MailThreads.platformThreadFactory("jodd-mail-idle-timer-"));
+	}
+
+	/**
+	 * Starts listening in a new thread.
+	 */
+	public synchronized ImapIdleListener start() {
+		if (running) {
+			return this;
+		}
+		running = true;
+		thread = MailThreads.platformThreadFactory("jodd-mail-idle-").newThread(this::listen);
+		thread.start();
+		return this;
+	}
+
+	/**
+	 * Returns {@code true} if listener is running.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Stops listening and waits for the listener thread to finish.
+	 */
+	@Override
+	public synchronized void close() {
+		scheduler.shutdownNow();
+		if (!running) {
+			return;
+		}
+		running = false;
+		thread.interrupt();
+		abortIdle();
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (final InterruptedException iex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// ---------------------------------------------------------------- listen
+
+	private void listen() {
+		long pollInterval = minPollInterval;
+		long retryInterval = minPollInterval;
+
+		while (running) {
+			try {
+				final int received = mailboxSync.sync(this::deliver);
+
+				if (supportsIdle()) {
+					idle();
+				}
+				else {
+					pollInterval = received > 0 ? minPollInterval : Math.min(pollInterval * 2, maxPollInterval);
+					sleep(pollInterval);
+				}
+				retryInterval = minPollInterval;
+			} catch (final RuntimeException ex) {
+				if (!running) {
+					break;
+				}
+				errorConsumer.accept(ex);
+				sleep(retryInterval);
+				retryInterval = Math.min(retryInterval * 2, maxPollInterval);
+				reconnect();
+			}
+		}
+	}
+
+	private void deliver(final ReceivedEmail email) {
+		try {
+			consumer.accept(email);
+		} catch (final RuntimeException ex) {
+			errorConsumer.accept(ex);
+		}
+	}
+
+	private boolean supportsIdle() {
+		if (!useIdle || !(session.folder instanceof IMAPFolder)) {
+			return false;
+		}
+		final Store store = session.getService();
+		try {
+			return store instanceof IMAPStore && ((IMAPStore) store).hasCapability("IDLE");
+		} catch (final MessagingException msgexc) {
+			throw new MailException(msgexc);
+		}
+	}
+
+	/**
+	 * Waits in {@code IDLE} until server notifies about a change, or until idle timeout.
+	 */
+	private void idle() {
+		final IMAPFolder folder = (IMAPFolder) session.folder;
+		final ScheduledFuture<?> reissue = scheduler.schedule(this::abortIdle, idleTimeout, TimeUnit.MILLISECONDS);
+		try {
+			folder.idle(true);
+		} catch (final MessagingException msgexc) {
+			throw new MailException("IDLE failed", msgexc);
+		} finally {
+			reissue.cancel(false);
+		}
+	}
+
+	/**
+	 * Terminates the {@code IDLE}, by using the folder from another thread.
+	 */
+	private void abortIdle() {
+		if (session.folder instanceof IMAPFolder && session.folder.isOpen()) {
+			try {
+				MailboxSync.refresh(session.folder);
+			} catch (final MessagingException | IllegalStateException ignore) {
+				// listener thread handles connection errors
+			}
+		}
+	}
+
+	private void reconnect() {
+		try {
+			if (!session.isConnected()) {
+				session.open();
+			}
+		} catch (final MailException ex) {
+			errorConsumer.accept(ex);
+		}
+	}
+
+	private void sleep(final long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (final InterruptedException ignore) {
+			// listener is closed
+		}
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Builder of {@link ImapIdleListener}.
+	 */
+	public static class Builder {
+		private final ReceiveMailSession session;
+		private final Consumer<ReceivedEmail> consumer;
+		private Consumer<Exception> errorConsumer = ex -> {};
+		private String folderName = ReceiveMailSession.DEFAULT_FOLDER;
+		private MailboxCheckpointStore checkpointStore;
+		private boolean useIdle = true;
+		private long idleTimeout = TimeUnit.MINUTES.toMillis(25);
+		private long minPollInterval = TimeUnit.SECONDS.toMillis(1);
+		private long maxPollInterval = TimeUnit.MINUTES.toMillis(1);
+
+		private Builder(final ReceiveMailSession session, final Consumer<ReceivedEmail> consumer) {
+			this.session = session;
+			this.consumer = consumer;
+		}
+
+		/**
+		 * Sets the folder to listen to. By default, this is {@code INBOX}.
+		 */
+		public Builder folder(final String folderName) {
+			this.folderName = folderName;
+			return this;
+		}
+
+		/**
+		 * Sets the consumer of errors, e.g. connection failures. Listener continues
+		 * after an error, and reconnects when needed.
+		 */
+		public Builder onError(final Consumer<Exception> errorConsumer) {
+			this.errorConsumer = errorConsumer;
+			return this;
+		}
+
+		/**
+		 * Keeps the last received UID in the given store, so messages that arrive
+		 * while the listener is not running are received on the next start.
+		 * By default, the UID is kept in memory.
+		 */
+		public Builder checkpointStore(final MailboxCheckpointStore checkpointStore) {
+			this.checkpointStore = checkpointStore;
+			return this;
+		}
+
+		/**
+		 * Enables or disables {@code IDLE}. When disabled, the folder is always polled.
+		 * By default, {@code IDLE} is used when server supports it.
+		 */
+		public Builder idle(final boolean useIdle) {
+			this.useIdle = useIdle;
+			return this;
+		}
+
+		/**
+		 * Sets how long, in milliseconds, a single {@code IDLE} lasts before it is re-issued.
+		 * Servers may drop the connection after 30 minutes of {@code IDLE}.
+		 * By default, this is 25 minutes.
+		 */
+		public Builder idleTimeout(final long idleTimeout) {
+			this.idleTimeout = idleTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets the minimal and maximal poll interval, in milliseconds, used when
+		 * {@code IDLE} is not available. By default, this is 1 second and 1 minute.
+		 */
+		public Builder pollInterval(final long minPollInterval, final long maxPollInterval) {
+			this.minPollInterval = minPollInterval;
+			this.maxPollInterval = maxPollInterval;
+			return this;
+		}
+
+		/**
+		 * Creates new {@link ImapIdleListener}. Use {@link ImapIdleListener#start()} to start it.
+		 */
+		public ImapIdleListener build() {
+			if (consumer == null) {
+				throw new MailException("Consumer is not set");
+			}
+			if (idleTimeout <= 0 || minPollInterval <= 0 || maxPollInterval < minPollInterval) {
+				throw new MailException("Invalid timeout or poll interval");
+			}
+			if (checkpointStore == null) {
+				checkpointStore = new MemoryCheckpointStore();
+			}
+			return new ImapIdleListener(this);
+		}
+	}
+
+	/**
+	 * Keeps checkpoints in memory.
+	 */
+	private static class MemoryCheckpointStore implements MailboxCheckpointStore {
+		private final Map<String, MailboxCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+		@Override
+		public MailboxCheckpoint load(final String folderName) {
+			return checkpoints.get(folderName);
+		}
+
+		@Override
+		public void save(final String folderName, final MailboxCheckpoint checkpoint) {
+			checkpoints.put(folderName, checkpoint);
+		}
+	}
+}
@@ -58,7 +58,13 @@ public class ImapServer extends MailServer<ReceiveMailSession> {
 
 		props.setProperty(MAIL_IMAP_HOST, host);
 		props.setProperty(MAIL_IMAP_PORT, String.valueOf(port));
-		props.setProperty(MAIL_IMAP_PARTIALFETCH, StringPool.FALSE);
+		if (fetchSize > 0) {
+			props.setProperty(MAIL_IMAP_PARTIALFETCH, StringPool.TRUE);
+			props.setProperty(MAIL_IMAP_FETCHSIZE, String.valueOf(fetchSize));
+		}
+		else {
+			props.setProperty(MAIL_IMAP_PARTIALFETCH, StringPool.FALSE);
+		}
 		props.setProperty(MAIL_IMAP_PEEK, StringPool.TRUE);
 
 		if (timeout > 0) {
@@ -91,7 +97,7 @@ public class ImapServer extends MailServer<ReceiveMailSession> {
 			PROTOCOL_IMAP,
 			createSessionProperties(),
 			authenticator,
-			attachmentStorage,
+			receiveSettings,
 			debugConsumer
 		);
 	}
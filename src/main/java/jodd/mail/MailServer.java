@@ -56,6 +56,7 @@ public abstract class MailServer<MailSessionImpl extends MailSession> {
 	public static final String MAIL_SMTP_CONNECTIONTIMEOUT = "mail.smtp.connectiontimeout";
 	public static final String MAIL_SMTP_TIMEOUT = "mail.smtp.timeout";
 	public static final String MAIL_SMTP_WRITETIMEOUT = "mail.smtp.writetimeout";
+	public static final String MAIL_SMTP_CHUNKSIZE = "mail.smtp.chunksize";
 
 	public static final String MAIL_SMTP_STARTTLS_REQUIRED = "mail.smtp.starttls.required";
 	public static final String MAIL_SMTP_STARTTLS_ENABLE = "mail.smtp.starttls.enable";
@@ -70,6 +71,7 @@ public abstract class MailServer<MailSessionImpl extends MailSession> {
 	public static final String MAIL_IMAP_HOST = "mail.imap.host";
 	public static final String MAIL_IMAP_USER = "mail.imap.user";
 	public static final String MAIL_IMAP_PARTIALFETCH = "mail.imap.partialfetch";
+	public static final String MAIL_IMAP_FETCHSIZE = "mail.imap.fetchsize";
 	public static final String MAIL_IMAP_PEEK = "mail.imap.peek";
 
 	public static final String MAIL_IMAP_SOCKET_FACTORY_PORT = "mail.imap.socketFactory.port";
@@ -112,6 +114,11 @@ public abstract class MailServer<MailSessionImpl extends MailSession> {
 
 	protected final File attachmentStorage;
 
+	/**
+	 * Settings of received emails: attachment store, spill thresholds and digest.
+	 */
+	final ReceiveSettings receiveSettings;
+
 	protected final boolean debugMode;
 	protected final Consumer<String> debugConsumer;
 
@@ -125,6 +132,26 @@ public abstract class MailServer<MailSessionImpl extends MailSession> {
 	 */
 	protected final int timeout;
 
+	/**
+	 * Whether SMTP commands are pipelined.
+	 */
+	protected final boolean pipelining;
+
+	/**
+	 * SMTP BDAT chunk size.
+	 */
+	protected final int chunkSize;
+
+	/**
+	 * IMAP partial fetch size, {@code 0} when partial fetch is disabled.
+	 */
+	protected final int fetchSize;
+
+	/**
+	 * Throttle of sending, may be {@code null}.
+	 */
+	protected final SendThrottle sendThrottle;
+
 	protected final Properties customProperties;
 
 	/**
@@ -137,7 +164,16 @@ public abstract class MailServer<MailSessionImpl extends MailSession> {
 		this.port = builder.port == -1 ? defaultPort : builder.port;
 		this.authenticator = builder.authenticator;
 		this.attachmentStorage = builder.attachmentStorage;
+		this.receiveSettings = new ReceiveSettings(
+			builder.attachmentStore != null ? builder.attachmentStore :
+				builder.attachmentStorage != null ? new FileAttachmentStore(builder.attachmentStorage) : null,
+			builder.spillThresholds,
+			builder.attachmentDigest);
 		this.timeout = builder.timeout;
+		this.pipelining = builder.pipelining;
+		this.chunkSize = builder.chunkSize;
+		this.fetchSize = builder.fetchSize;
+		this.sendThrottle = builder.sendThrottle;
 		this.strictAddress = builder.strictAddress;
 		this.debugMode = builder.debug;
 		this.debugConsumer = builder.debugConsumer;
@@ -199,10 +235,17 @@ public abstract class MailServer<MailSessionImpl extends MailSession> {
 		private boolean ssl = false;
 		private Authenticator authenticator;
 		private File attachmentStorage;
+		private AttachmentStore attachmentStore;
+		private SpillThresholds spillThresholds;
+		private String attachmentDigest;
 		private boolean debug;
 		private Consumer<String> debugConsumer;
 		private int timeout = 0;
 		private boolean strictAddress = true;
+		private boolean pipelining;
+		private int chunkSize = 0;
+		private int fetchSize = 0;
+		private SendThrottle sendThrottle;
 		private final Properties customProperties = new Properties();
 
 		/**
@@ -241,9 +284,55 @@ public abstract class MailServer<MailSessionImpl extends MailSession> {
 
 		/**
 		 * Defines attachment storage, a folder where attachments will be saved.
+		 * Attachments are streamed into files, but IMAP parts are still downloaded
+		 * at once unless partial fetch is enabled with {@link #fetchSize(int)}.
 		 */
 		public Builder storeAttachmentsIn(final File attachmentStorage) {
 			this.attachmentStorage = attachmentStorage;
+			this.attachmentStore = null;
+			return this;
+		}
+
+		/**
+		 * Defines the {@link AttachmentStore} where attachments will be saved, for example
+		 * a {@link ContentAddressedAttachmentStore} that keeps repeated attachments only once.
+		 */
+		public Builder storeAttachmentsIn(final AttachmentStore attachmentStore) {
+			this.attachmentStore = attachmentStore;
+			this.attachmentStorage = null;
+			return this;
+		}
+
+		/**
+		 * Keeps received attachments, when not stored in the attachment storage,
+		 * on the heap only up to given size; larger attachments are kept in direct
+		 * buffers and the largest are spilled to temporary files.
+		 *
+		 * @param heapThreshold    maximal size of attachment kept on the heap, in bytes.
+		 * @param offHeapThreshold maximal size of attachment kept in a direct buffer, in bytes.
+		 * @param spillFolder      folder of temporary files, or {@code null} for the default one.
+		 * @return this
+		 * @see SpillingDataSource
+		 */
+		public Builder spillAttachments(final int heapThreshold, final int offHeapThreshold, final File spillFolder) {
+			this.spillThresholds = new SpillThresholds(heapThreshold, offHeapThreshold, spillFolder);
+			return this;
+		}
+
+		/**
+		 * Computes the digest of received attachments with given algorithm, like
+		 * {@code SHA-256} or {@code MD5}, in the same pass that reads their content.
+		 * Use {@code null} to disable.
+		 *
+		 * @param algorithm digest algorithm supported by {@link java.security.MessageDigest}.
+		 * @return this
+		 * @see EmailAttachment#getDigest()
+		 */
+		public Builder attachmentDigest(final String algorithm) {
+			if (algorithm != null) {
+				AttachmentInspector.newDigest(algorithm);
+			}
+			this.attachmentDigest = algorithm;
 			return this;
 		}
 
@@ -315,6 +404,62 @@ public abstract class MailServer<MailSessionImpl extends MailSession> {
 			return this;
 		}
 
+		/**
+		 * Enables SMTP command pipelining (RFC 2920), used when the server supports it.
+		 * Envelope commands are then sent without waiting for each response,
+		 * see {@link PipeliningSmtpTransport}.
+		 *
+		 * @param pipelining {@code true} to pipeline SMTP commands. By default, this is {@code false}.
+		 * @return this
+		 */
+		public Builder pipelining(final boolean pipelining) {
+			this.pipelining = pipelining;
+			return this;
+		}
+
+		/**
+		 * Enables SMTP chunking (RFC 3030), used when the server supports it. Message
+		 * content is then sent with {@code BDAT} commands in chunks of given size,
+		 * instead of {@code DATA} command.
+		 *
+		 * @param chunkSize chunk size in bytes. By default, this is {@code 0}, i.e. chunking is disabled.
+		 * @return this
+		 */
+		public Builder chunkSize(final int chunkSize) {
+			this.chunkSize = chunkSize;
+			return this;
+		}
+
+		/**
+		 * Enables IMAP partial fetch. Message parts are then downloaded in chunks
+		 * of given size, only as they are read, so a part can be read partially.
+		 * Some servers do not handle partial fetch correctly.
+		 *
+		 * @param fetchSize chunk size in bytes. By default, this is {@code 0}, i.e. partial fetch is
+		 *                  disabled and each part is downloaded at once.
+		 * @return this
+		 * @see ReceiverBuilder#maxTextSize(int)
+		 */
+		public Builder fetchSize(final int fetchSize) {
+			if (fetchSize < 0) {
+				throw new MailException("Fetch size must not be negative");
+			}
+			this.fetchSize = fetchSize;
+			return this;
+		}
+
+		/**
+		 * Sets the {@link SendThrottle} that limits sending to the server, for example
+		 * a {@link RelayThrottle}. The same throttle may be shared between servers.
+		 *
+		 * @param sendThrottle the throttle. By default, sending is not throttled.
+		 * @return this
+		 */
+		public Builder throttle(final SendThrottle sendThrottle) {
+			this.sendThrottle = sendThrottle;
+			return this;
+		}
+
 		/**
 		 * Specifies a custom property.
 		 */
@@ -0,0 +1,61 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+/**
+ * Sync state of a mailbox folder: its {@code UIDVALIDITY} and the last received UID.
+ *
+ * @see MailboxSync
+ */
+public class MailboxCheckpoint {
+
+	private final long uidValidity;
+	private final long lastUid;
+
+	public MailboxCheckpoint(final long uidValidity, final long lastUid) {
+		this.uidValidity = uidValidity;
+		this.lastUid = lastUid;
+	}
+
+	/**
+	 * Returns {@code UIDVALIDITY} of the folder. When it changes, all UIDs of the folder are invalid.
+	 */
+	public long uidValidity() {
+		return uidValidity;
+	}
+
+	/**
+	 * Returns UID of the last received message.
+	 */
+	public long lastUid() {
+		return lastUid;
+	}
+
+	@Override
+	public String toString() {
+		return uidValidity + ":" + lastUid;
+	}
+}
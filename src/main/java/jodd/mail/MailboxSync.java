@@ -0,0 +1,303 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.UIDFolder;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Incremental sync of a mailbox folder. Only messages that arrived since the previous
+ * sync are received, by their UIDs. The {@code UIDVALIDITY} and the last received UID
+ * are kept in a {@link MailboxCheckpointStore}, so the sync continues where it stopped
+ * even after a restart. When {@code UIDVALIDITY} of the folder changes, the folder is
+ * received again from the start.
+ * Works only with folders that support UIDs, i.e. IMAP.
+ */
+public class MailboxSync {
+
+	/**
+	 * Returns new sync builder for the session.
+	 */
+	public static Builder create(final ReceiveMailSession session) {
+		return new Builder(session);
+	}
+
+	private final ReceiveMailSession session;
+	private final MailboxCheckpointStore checkpointStore;
+	private final String folderName;
+	private final boolean envelopeOnly;
+	private final boolean lazy;
+	private final boolean skipExisting;
+	private final FetchProfile fetchProfile;
+	private final int windowSize;
+
+	protected MailboxSync(final Builder builder) {
+		this.session = builder.session;
+		this.checkpointStore = builder.checkpointStore;
+		this.folderName = builder.folderName;
+		this.envelopeOnly = builder.envelopeOnly;
+		this.lazy = builder.lazy;
+		this.skipExisting = builder.skipExisting;
+		this.fetchProfile = withUid(builder.fetchProfile);
+		this.windowSize = builder.windowSize;
+	}
+
+	/**
+	 * Receives the new messages of the folder.
+	 *
+	 * @return array of new {@link ReceivedEmail}s, ordered by UID.
+	 * @see #sync(Consumer)
+	 */
+	public ReceivedEmail[] sync() {
+		final List<ReceivedEmail> emails = new ArrayList<>();
+		sync(emails::add);
+		return emails.toArray(ReceivedEmail.EMPTY_ARRAY);
+	}
+
+	/**
+	 * Receives the new messages of the folder and passes them to the consumer, ordered by UID.
+	 * The checkpoint is saved after each window of consumed messages, so when the consumer
+	 * fails, only the messages of the current window are received again on the next sync.
+	 *
+	 * @return number of new messages.
+	 */
+	public int sync(final Consumer<ReceivedEmail> consumer) {
+		try {
+			return _sync(consumer);
+		} catch (final MessagingException msgexc) {
+			throw new MailException("Failed to sync folder: " + folderName, msgexc);
+		}
+	}
+
+	private int _sync(final Consumer<ReceivedEmail> consumer) throws MessagingException {
+		if (session.folder == null || !session.folder.isOpen() || !folderName.equals(session.folderName)) {
+			session.useFolder(folderName);
+		}
+		else {
+			refresh(session.folder);
+		}
+		final Folder folder = session.folder;
+		if (!(folder instanceof UIDFolder)) {
+			throw new MailException("Folder does not support UIDs: " + folderName);
+		}
+		final UIDFolder uidFolder = (UIDFolder) folder;
+		final long uidValidity = uidFolder.getUIDValidity();
+
+		MailboxCheckpoint checkpoint = checkpointStore.load(folderName);
+		if (checkpoint == null || checkpoint.uidValidity() != uidValidity) {
+			if (skipExisting) {
+				checkpointStore.save(folderName, new MailboxCheckpoint(uidValidity, Math.max(0, uidFolder.getUIDNext() - 1)));
+				return 0;
+			}
+			checkpoint = new MailboxCheckpoint(uidValidity, 0);
+		}
+
+		final Message[] newMessages = newMessages(uidFolder, checkpoint.lastUid());
+		if (newMessages.length == 0) {
+			return 0;
+		}
+
+		final Iterator<ReceivedEmail> iterator = new ReceivedEmails(
+			session, newMessages, null, null, envelopeOnly, null,
+			session.settings.withLazy(lazy).withFetchProfile(fetchProfile, 0)).iterator(windowSize);
+
+		long lastUid = checkpoint.lastUid();
+		int count = 0;
+		while (iterator.hasNext()) {
+			final ReceivedEmail email = iterator.next();
+			consumer.accept(email);
+			lastUid = Math.max(lastUid, email.uid());
+			count++;
+			if (count % windowSize == 0 || count == newMessages.length) {
+				checkpointStore.save(folderName, new MailboxCheckpoint(uidValidity, lastUid));
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the fetch profile with UIDs, as they are needed for checkpoints.
+	 * UIDs of new messages are already known, so they are not fetched again.
+	 */
+	private static FetchProfile withUid(final FetchProfile fetchProfile) {
+		if (fetchProfile == null || fetchProfile.contains(UIDFolder.FetchProfileItem.UID)) {
+			return fetchProfile;
+		}
+		final FetchProfile uidFetchProfile = new FetchProfile();
+		for (final FetchProfile.Item item : fetchProfile.getItems()) {
+			uidFetchProfile.add(item);
+		}
+		for (final String headerName : fetchProfile.getHeaderNames()) {
+			uidFetchProfile.add(headerName);
+		}
+		uidFetchProfile.add(UIDFolder.FetchProfileItem.UID);
+		return uidFetchProfile;
+	}
+
+	/**
+	 * Lets the already opened folder learn about the newly arrived messages.
+	 */
+	static void refresh(final Folder folder) throws MessagingException {
+		if (folder instanceof IMAPFolder) {
+			((IMAPFolder) folder).doCommand(protocol -> {
+				protocol.noop();
+				return null;
+			});
+			return;
+		}
+		folder.getMessageCount();
+	}
+
+	/**
+	 * Returns messages with UID greater than the last one. The range {@code n:*} always
+	 * includes the last message of the folder, so already received messages are filtered out.
+	 */
+	private static Message[] newMessages(final UIDFolder uidFolder, final long lastUid) throws MessagingException {
+		final Message[] messages = uidFolder.getMessagesByUID(lastUid + 1, UIDFolder.LASTUID);
+		final List<Message> newMessages = new ArrayList<>(messages.length);
+		for (final Message message : messages) {
+			if (message != null && uidFolder.getUID(message) > lastUid) {
+				newMessages.add(message);
+			}
+		}
+		return newMessages.toArray(new Message[0]);
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Builder of {@link MailboxSync}.
+	 */
+	public static class Builder {
+		private final ReceiveMailSession session;
+		private MailboxCheckpointStore checkpointStore;
+		private String folderName = ReceiveMailSession.DEFAULT_FOLDER;
+		private boolean envelopeOnly;
+		private boolean lazy;
+		private boolean skipExisting;
+		private FetchProfile fetchProfile;
+		private int windowSize = ReceiverBuilder.DEFAULT_WINDOW_SIZE;
+
+		private Builder(final ReceiveMailSession session) {
+			this.session = session;
+		}
+
+		/**
+		 * Keeps checkpoints in the given properties file.
+		 *
+		 * @see FileCheckpointStore
+		 */
+		public Builder checkpointFile(final File file) {
+			this.checkpointStore = new FileCheckpointStore(file);
+			return this;
+		}
+
+		/**
+		 * Sets custom {@link MailboxCheckpointStore}.
+		 */
+		public Builder checkpointStore(final MailboxCheckpointStore checkpointStore) {
+			this.checkpointStore = checkpointStore;
+			return this;
+		}
+
+		/**
+		 * Sets the folder to sync. By default, this is {@code INBOX}.
+		 */
+		public Builder folder(final String folderName) {
+			this.folderName = folderName;
+			return this;
+		}
+
+		/**
+		 * Receives only envelopes.
+		 */
+		public Builder envelopeOnly() {
+			this.envelopeOnly = true;
+			return this;
+		}
+
+		/**
+		 * Parses the content of received emails on demand.
+		 *
+		 * @see ReceiverBuilder#lazy()
+		 */
+		public Builder lazy() {
+			this.lazy = true;
+			return this;
+		}
+
+		/**
+		 * Skips messages that exist in the folder on the first sync, or after
+		 * {@code UIDVALIDITY} changed. Only messages that arrive later are received.
+		 */
+		public Builder skipExisting() {
+			this.skipExisting = true;
+			return this;
+		}
+
+		/**
+		 * Defines the items that are bulk-prefetched.
+		 *
+		 * @see ReceiverBuilder#fetchProfile(FetchProfile)
+		 */
+		public Builder fetchProfile(final FetchProfile fetchProfile) {
+			this.fetchProfile = fetchProfile;
+			return this;
+		}
+
+		/**
+		 * Sets number of messages fetched at once. The checkpoint is saved after each window.
+		 * By default, this is {@link ReceiverBuilder#DEFAULT_WINDOW_SIZE}.
+		 */
+		public Builder windowSize(final int windowSize) {
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		/**
+		 * Creates new {@link MailboxSync}.
+		 */
+		public MailboxSync build() {
+			if (checkpointStore == null) {
+				throw new MailException("Checkpoint store is not set");
+			}
+			if (windowSize <= 0) {
+				throw new MailException("Window size must be positive");
+			}
+			return new MailboxSync(this);
+		}
+	}
+}
@@ -0,0 +1,259 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.SharedFileInputStream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reader of messages in a mbox archive, or in a single EML file. A file that starts with
+ * a {@code From } line is a mbox archive: it is scanned once for the {@code From } separator
+ * lines that follow a blank line, and only the offsets of messages are kept in memory.
+ * Any other file is read as a single message.
+ * Messages are parsed from a {@link SharedFileInputStream}, so their parts are read from
+ * the disk only when they are touched; with {@link EMLParser#lazy() lazy} parsing and an
+ * {@link EMLParser#storeAttachmentsIn(AttachmentStore) attachment store}, the memory does not
+ * depend on the size of the archive.
+ * <p>
+ * Quoted {@code >From } lines are not unquoted. Received emails may read their content
+ * until the reader is closed.
+ */
+public class MboxReader implements Iterable<ReceivedEmail>, AutoCloseable {
+
+	private static final byte[] FROM = {'F', 'r', 'o', 'm', ' '};
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final EMLParser parser;
+	private final Session session;
+	private final SharedFileInputStream input;
+	private long[] starts = new long[16];
+	private long[] ends = new long[16];
+	private int size;
+
+	MboxReader(final File mboxFile, final Session session, final EMLParser parser) throws IOException {
+		this.parser = parser;
+		this.session = session;
+		index(mboxFile);
+		this.input = new SharedFileInputStream(mboxFile);
+	}
+
+	/**
+	 * Scans the file and collects the offsets of messages.
+	 */
+	private void index(final File mboxFile) throws IOException {
+		if (!isMbox(mboxFile)) {
+			addMessage(0, mboxFile.length());
+			return;
+		}
+
+		long messageStart = 0;
+		long lineStart = 0;
+		long lastLineStart = 0;
+		boolean lineBlank = true;
+		boolean lastLineBlank = false;
+		boolean fromLine = false;
+		int match = 0;
+		long position = 0;
+
+		try (final InputStream in = new FileInputStream(mboxFile)) {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				for (int i = 0; i < count; i++, position++) {
+					final byte b = buffer[i];
+					if (match >= 0) {
+						if (b == FROM[match]) {
+							match++;
+							if (match == FROM.length) {
+								match = -1;
+								// separator starts the file or follows a blank line
+								if (lineStart == 0 || lastLineBlank) {
+									fromLine = true;
+									addMessage(messageStart, lastLineStart);
+								}
+							}
+						}
+						else {
+							match = -1;
+						}
+					}
+					if (b == '\n') {
+						if (fromLine) {
+							fromLine = false;
+							messageStart = position + 1;
+						}
+						lastLineStart = lineStart;
+						lastLineBlank = lineBlank;
+						lineStart = position + 1;
+						lineBlank = true;
+						match = 0;
+					}
+					else if (b != '\r') {
+						lineBlank = false;
+					}
+				}
+			}
+		}
+
+		if (!fromLine) {
+			addMessage(messageStart, lineStart == position && lastLineBlank ? lastLineStart : position);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the file starts with a {@code From } line.
+	 */
+	private static boolean isMbox(final File file) throws IOException {
+		final byte[] head = new byte[FROM.length];
+		int total = 0;
+		try (final InputStream in = new FileInputStream(file)) {
+			while (total < head.length) {
+				final int count = in.read(head, total, head.length - total);
+				if (count == -1) {
+					return false;
+				}
+				total += count;
+			}
+		}
+		return Arrays.equals(head, FROM);
+	}
+
+	private void addMessage(final long start, final long end) {
+		if (end <= start) {
+			return;
+		}
+		if (size == starts.length) {
+			starts = Arrays.copyOf(starts, size * 2);
+			ends = Arrays.copyOf(ends, size * 2);
+		}
+		starts[size] = start;
+		ends[size] = end;
+		size++;
+	}
+
+	/**
+	 * Returns the number of messages.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the offset of the message in the file.
+	 */
+	public long offset(final int index) {
+		checkIndex(index);
+		return starts[index];
+	}
+
+	/**
+	 * Returns the size of the message in bytes.
+	 */
+	public long messageSize(final int index) {
+		checkIndex(index);
+		return ends[index] - starts[index];
+	}
+
+	/**
+	 * Parses the message at given index.
+	 *
+	 * @param index index of the message.
+	 * @return {@link ReceivedEmail}.
+	 */
+	public ReceivedEmail get(final int index) {
+		checkIndex(index);
+		final MimeMessage message;
+		try {
+			message = new MimeMessage(session, input.newStream(starts[index], ends[index]));
+		} catch (final MessagingException mex) {
+			throw new MailException("Failed to parse message #" + index, mex);
+		}
+		return parser.createReceivedEmail(message);
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Invalid message index: " + index);
+		}
+	}
+
+	/**
+	 * Returns an iterator that parses messages one by one, in the order of the file.
+	 */
+	@Override
+	public Iterator<ReceivedEmail> iterator() {
+		return new Iterator<ReceivedEmail>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public ReceivedEmail next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return get(next++);
+			}
+		};
+	}
+
+	/**
+	 * Returns a sequential stream of messages.
+	 */
+	public Stream<ReceivedEmail> stream() {
+		return StreamSupport
+			.stream(Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Closes the file. Content of lazy emails can not be loaded afterwards.
+	 */
+	@Override
+	public void close() {
+		try {
+			input.close();
+		} catch (final IOException ioex) {
+			throw new MailException(ioex);
+		}
+	}
+}
@@ -0,0 +1,431 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.UIDFolder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads several folders of a mailbox in parallel, over a number of IMAP connections.
+ * Folders are split into ranges of UIDs, so a single large folder is
+ * read over all connections as well. Ranges are read by workers, each on its own
+ * connection, and merged into a single stream in folder order. Only a limited
+ * number of ranges is read ahead of the stream consumer.
+ * <p>
+ * Folders are opened read-only; flags of read messages are not changed. Ranges are planned
+ * when the stream is created: messages expunged by other clients in the meantime are
+ * skipped, and messages added later are not read.
+ */
+public class ParallelMailboxReader implements AutoCloseable {
+
+	/**
+	 * Returns new reader builder for given IMAP server.
+	 */
+	public static Builder create(final ImapServer imapServer) {
+		return new Builder(imapServer);
+	}
+
+	private static final ReceivedEmail[] NO_EMAILS = new ReceivedEmail[0];
+	private static final FetchProfile UID_PROFILE = new FetchProfile();
+
+	static {
+		UID_PROFILE.add(UIDFolder.FetchProfileItem.UID);
+	}
+
+	private final String[] folders;
+	private final int rangeSize;
+	private final int readAhead;
+	private final boolean envelopeOnly;
+	private final FetchProfile fetchProfile;
+	private final List<ReceiveMailSession> sessions;
+	private final BlockingQueue<ReceiveMailSession> idleSessions;
+	private final ExecutorService executor;
+
+	protected ParallelMailboxReader(final Builder builder) {
+		this.folders = builder.folders;
+		this.rangeSize = builder.rangeSize;
+		this.readAhead = builder.readAhead > 0 ? builder.readAhead : builder.connections * 2;
+		this.envelopeOnly = builder.envelopeOnly;
+		this.fetchProfile = builder.fetchProfile;
+		this.sessions = openSessions(builder.imapServer, builder.connections);
+		this.idleSessions = new LinkedBlockingQueue<>(sessions);
+		this.executor = Executors.newFixedThreadPool(builder.connections, resolveThreadFactory(builder));
+	}
+
+	/**
+	 * Returns the stream of all emails in selected folders. Emails of each folder
+	 * are in the folder order, and folders are in the order they were specified in;
+	 * or as listed by the server when all folders are read.
+	 * Closing the stream stops reading ahead, but the reader itself remains open.
+	 */
+	public Stream<ReceivedEmail> stream() {
+		final RangeIterator iterator = new RangeIterator(planRanges());
+		return StreamSupport
+			.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(iterator::cancel);
+	}
+
+	/**
+	 * Closes all connections and stops the workers.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+		for (final ReceiveMailSession session : sessions) {
+			session.close();
+		}
+	}
+
+	// ---------------------------------------------------------------- internal
+
+	/**
+	 * Range of UIDs in a folder, read as a single task.
+	 */
+	protected static class Range {
+		protected final String folder;
+		protected final long uidValidity;
+		protected final long from;
+		protected final long to;
+
+		protected Range(final String folder, final long uidValidity, final long from, final long to) {
+			this.folder = folder;
+			this.uidValidity = uidValidity;
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	/**
+	 * Splits selected folders into ranges of at most {@link Builder#rangeSize(int)} messages.
+	 * Only UIDs of the first and the last message of each range are fetched; folders
+	 * are closed afterwards, so the ranges are read over freshly selected folders.
+	 */
+	protected List<Range> planRanges() {
+		final ReceiveMailSession session = borrowSession();
+		try {
+			final String[] folderNames = folders != null ? folders : session.getAllFolders();
+			final List<Range> ranges = new ArrayList<>();
+
+			for (final String folderName : folderNames) {
+				final Folder folder = session.getFolder(folderName);
+				if ((folder.getType() & Folder.HOLDS_MESSAGES) == 0) {
+					continue;
+				}
+				folder.open(Folder.READ_ONLY);
+				try {
+					planRanges(folder, folderName, ranges);
+				}
+				finally {
+					folder.close(false);
+				}
+			}
+			return ranges;
+		}
+		catch (final MessagingException msgexc) {
+			throw new MailException("Failed to list folders", msgexc);
+		}
+		finally {
+			idleSessions.add(session);
+		}
+	}
+
+	private void planRanges(final Folder folder, final String folderName, final List<Range> ranges) throws MessagingException {
+		final Message[] messages = folder.getMessages();
+		final Message[] bounds = new Message[(messages.length + rangeSize - 1) / rangeSize * 2];
+		for (int i = 0, from = 0; from < messages.length; from += rangeSize) {
+			bounds[i++] = messages[from];
+			bounds[i++] = messages[Math.min(from + rangeSize, messages.length) - 1];
+		}
+		folder.fetch(new LinkedHashSet<>(Arrays.asList(bounds)).toArray(new Message[0]), UID_PROFILE);
+
+		final UIDFolder uidFolder = (UIDFolder) folder;
+		final long uidValidity = uidFolder.getUIDValidity();
+		for (int i = 0; i < bounds.length; i += 2) {
+			ranges.add(new Range(folderName, uidValidity, uidFolder.getUID(bounds[i]), uidFolder.getUID(bounds[i + 1])));
+		}
+	}
+
+	/**
+	 * Reads single range of messages on any idle connection. The folder is opened
+	 * only when the connection has a different folder selected. Messages expunged
+	 * in the meantime are skipped. Fails if the UIDs of the folder are no longer valid.
+	 */
+	protected ReceivedEmail[] readRange(final Range range) {
+		final ReceiveMailSession session = borrowSession();
+		try {
+			if (session.folder == null || !session.folder.isOpen() || !range.folder.equals(session.folderName)) {
+				session.useFolder(range.folder, Folder.READ_ONLY);
+			}
+			final UIDFolder uidFolder = (UIDFolder) session.folder;
+			if (uidFolder.getUIDValidity() != range.uidValidity) {
+				throw new MailException("UIDs of folder are no longer valid: " + range.folder);
+			}
+			final Message[] messages = uidFolder.getMessagesByUID(range.from, range.to);
+			if (messages.length == 0) {
+				return NO_EMAILS;
+			}
+
+			return new ReceivedEmails(
+				session, messages, null, null, envelopeOnly, null, session.settings.withFetchProfile(fetchProfile, 0)).fetch();
+		}
+		catch (final MessagingException msgexc) {
+			throw new MailException("Failed to read messages from folder: " + range.folder, msgexc);
+		}
+		finally {
+			idleSessions.add(session);
+		}
+	}
+
+	private ReceiveMailSession borrowSession() {
+		try {
+			return idleSessions.take();
+		}
+		catch (final InterruptedException iex) {
+			Thread.currentThread().interrupt();
+			throw new MailException("Interrupted while waiting for a connection", iex);
+		}
+	}
+
+	private static List<ReceiveMailSession> openSessions(final ImapServer imapServer, final int connections) {
+		final List<ReceiveMailSession> sessions = new ArrayList<>(connections);
+		try {
+			for (int i = 0; i < connections; i++) {
+				final ReceiveMailSession session = imapServer.createSession();
+				session.open();
+				sessions.add(session);
+			}
+		}
+		catch (final MailException mex) {
+			for (final ReceiveMailSession session : sessions) {
+				session.close();
+			}
+			throw mex;
+		}
+		return sessions;
+	}
+
+	private static ThreadFactory resolveThreadFactory(final Builder builder) {
+		if (builder.virtualThreads) {
+			return MailThreads.virtualThreadFactory("jodd-mail-reader-");
+		}
+		return MailThreads.platformThreadFactory("jodd-mail-reader-");
+	}
+
+	/**
+	 * Iterates emails of all ranges, in order, while keeping the next few ranges
+	 * being read in the background.
+	 */
+	private class RangeIterator implements Iterator<ReceivedEmail> {
+		private final Iterator<Range> ranges;
+		private final Deque<CompletableFuture<ReceivedEmail[]>> inFlight = new ArrayDeque<>();
+		private ReceivedEmail[] current = NO_EMAILS;
+		private int index;
+
+		private RangeIterator(final List<Range> ranges) {
+			this.ranges = ranges.iterator();
+			submitRanges();
+		}
+
+		private void submitRanges() {
+			while (inFlight.size() < readAhead && ranges.hasNext()) {
+				final Range range = ranges.next();
+				inFlight.add(CompletableFuture.supplyAsync(() -> readRange(range), executor));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (index == current.length) {
+				final CompletableFuture<ReceivedEmail[]> next = inFlight.poll();
+				if (next == null) {
+					return false;
+				}
+				current = join(next);
+				index = 0;
+				submitRanges();
+			}
+			return true;
+		}
+
+		@Override
+		public ReceivedEmail next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return current[index++];
+		}
+
+		private ReceivedEmail[] join(final CompletableFuture<ReceivedEmail[]> future) {
+			try {
+				return future.join();
+			}
+			catch (final CompletionException cex) {
+				cancel();
+				if (cex.getCause() instanceof MailException) {
+					throw (MailException) cex.getCause();
+				}
+				throw new MailException("Failed to read messages", cex.getCause());
+			}
+		}
+
+		/**
+		 * Drops all ranges that are not yet read. Ranges being read are completed.
+		 */
+		private void cancel() {
+			while (ranges.hasNext()) {
+				ranges.next();
+			}
+			for (final CompletableFuture<ReceivedEmail[]> future : inFlight) {
+				future.cancel(false);
+			}
+			inFlight.clear();
+		}
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Builder of {@link ParallelMailboxReader}.
+	 */
+	public static class Builder {
+		private final ImapServer imapServer;
+		private String[] folders;
+		private int connections = 4;
+		private int rangeSize = 500;
+		private int readAhead;
+		private boolean envelopeOnly;
+		private FetchProfile fetchProfile;
+		private boolean virtualThreads;
+
+		protected Builder(final ImapServer imapServer) {
+			Objects.requireNonNull(imapServer, "IMAP server cannot be null");
+			this.imapServer = imapServer;
+		}
+
+		/**
+		 * Reads only given folders, in given order.
+		 * By default, all folders of the mailbox are read.
+		 */
+		public Builder folders(final String... folders) {
+			this.folders = Arrays.copyOf(folders, folders.length);
+			return this;
+		}
+
+		/**
+		 * Sets number of IMAP connections, i.e. number of ranges read in parallel.
+		 * By default, this is {@code 4}. Servers often limit the number of
+		 * concurrent connections per user.
+		 */
+		public Builder connections(final int connections) {
+			this.connections = connections;
+			return this;
+		}
+
+		/**
+		 * Sets maximal number of messages read as a single task.
+		 * By default, this is {@code 500}.
+		 */
+		public Builder rangeSize(final int rangeSize) {
+			this.rangeSize = rangeSize;
+			return this;
+		}
+
+		/**
+		 * Sets number of ranges read ahead of the stream consumer.
+		 * By default, this is twice the number of connections.
+		 */
+		public Builder readAhead(final int readAhead) {
+			this.readAhead = readAhead;
+			return this;
+		}
+
+		/**
+		 * Reads only envelopes.
+		 */
+		public Builder envelopeOnly() {
+			this.envelopeOnly = true;
+			return this;
+		}
+
+		/**
+		 * Sets the {@link FetchProfile} that is prefetched for each range.
+		 * By default, {@link ReceivedEmails#defaultFetchProfile(jakarta.mail.Folder, boolean)} is used.
+		 */
+		public Builder fetchProfile(final FetchProfile fetchProfile) {
+			this.fetchProfile = fetchProfile;
+			return this;
+		}
+
+		/**
+		 * Runs workers on virtual threads when the JVM supports them (Java 21+).
+		 * On older JVMs this flag is ignored and platform threads are used.
+		 */
+		public Builder virtualThreads(final boolean virtualThreads) {
+			this.virtualThreads = virtualThreads;
+			return this;
+		}
+
+		/**
+		 * Creates new {@link ParallelMailboxReader} and opens all connections.
+		 */
+		public ParallelMailboxReader build() {
+			if (connections <= 0) {
+				throw new MailException("Number of connections must be positive");
+			}
+			if (rangeSize <= 0) {
+				throw new MailException("Range size must be positive");
+			}
+			if (readAhead < 0) {
+				throw new MailException("Read-ahead must not be negative");
+			}
+			return new ParallelMailboxReader(this);
+		}
+	}
+}
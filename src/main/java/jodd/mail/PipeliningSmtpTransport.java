@@ -0,0 +1,254 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.URLName;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPMessage;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * SMTP transport with command pipelining (RFC 2920). When the server advertises
+ * {@code PIPELINING}, the {@code MAIL FROM} command and all {@code RCPT TO} commands
+ * are sent without waiting for the responses, that are read afterward. This way
+ * the envelope of an email with many recipients costs a single round-trip.
+ * When server does not support pipelining, commands are sent one by one.
+ * <p>
+ * BDAT chunking (RFC 3030) is handled by the underlying transport,
+ * see {@link MailServer.Builder#chunkSize(int)}.
+ */
+public class PipeliningSmtpTransport extends SMTPTransport {
+
+	protected static final String PIPELINING = "PIPELINING";
+	private static final String RCPT_TO = "RCPT TO:";
+	private static final int OK = 250;
+
+	/**
+	 * Commands already sent to the server, whose responses are not read yet.
+	 */
+	private final Deque<String> pipelinedCommands = new ArrayDeque<>();
+
+	private final String name;
+	private Message message;
+	private Address[] recipients;
+	private boolean deferResponse;
+	private boolean mailFromPending;
+
+	public PipeliningSmtpTransport(final Session session, final URLName urlName) {
+		this(session, urlName, "smtp", false);
+	}
+
+	/**
+	 * Creates transport for given protocol name, e.g. {@code smtps}.
+	 */
+	public PipeliningSmtpTransport(final Session session, final URLName urlName, final String name, final boolean isSSL) {
+		super(session, urlName, name, isSSL);
+		this.name = name;
+	}
+
+	@Override
+	public synchronized void sendMessage(final Message message, final Address[] addresses) throws MessagingException {
+		this.message = message;
+		this.recipients = addresses;
+		try {
+			super.sendMessage(message, addresses);
+		}
+		finally {
+			this.message = null;
+			this.recipients = null;
+			this.mailFromPending = false;
+			this.pipelinedCommands.clear();
+		}
+	}
+
+	/**
+	 * Sends the {@code MAIL FROM} command, but does not wait for the response
+	 * when the server supports pipelining. The response is read together with
+	 * the responses of {@code RCPT TO} commands.
+	 */
+	@Override
+	protected void mailFrom() throws MessagingException {
+		if (!supportsExtension(PIPELINING)) {
+			super.mailFrom();
+			return;
+		}
+		deferResponse = true;
+		try {
+			super.mailFrom();
+		}
+		finally {
+			deferResponse = false;
+		}
+		mailFromPending = true;
+	}
+
+	/**
+	 * Sends all {@code RCPT TO} commands at once and then reads the responses.
+	 */
+	@Override
+	protected void rcptTo() throws MessagingException {
+		if (!mailFromPending) {
+			super.rcptTo();
+			return;
+		}
+		mailFromPending = false;
+
+		final List<String> commands = resolveRcptCommands();
+		if (commands != null) {
+			for (final String command : commands) {
+				super.sendCommand(command);
+			}
+		}
+
+		final int mailFromReturnCode = super.readServerResponse();
+		if (mailFromReturnCode != OK) {
+			final String response = getLastServerResponse();
+			if (commands != null) {
+				for (int i = 0; i < commands.size(); i++) {
+					super.readServerResponse();
+				}
+			}
+			resetTransaction();
+			throw new SMTPSendFailedException("MAIL FROM", mailFromReturnCode, response, null, null, recipients, null);
+		}
+
+		if (commands == null) {
+			super.rcptTo();
+			return;
+		}
+
+		pipelinedCommands.addAll(commands);
+		try {
+			super.rcptTo();
+		}
+		finally {
+			readPipelinedResponses();
+		}
+	}
+
+	/**
+	 * Resets the failed mail transaction, as the underlying transport does. If the
+	 * transaction can not be reset, the connection is closed.
+	 */
+	private void resetTransaction() {
+		try {
+			issueCommand("RSET", -1);
+		}
+		catch (final MessagingException mex) {
+			try {
+				close();
+			}
+			catch (final MessagingException ignore) {
+			}
+		}
+	}
+
+	/**
+	 * Skips commands that are already sent. Any other command first
+	 * reads all the responses of pipelined commands.
+	 */
+	@Override
+	protected void sendCommand(final String command) throws MessagingException {
+		if (!pipelinedCommands.isEmpty()) {
+			if (command.equals(pipelinedCommands.peekFirst())) {
+				pipelinedCommands.removeFirst();
+				return;
+			}
+			readPipelinedResponses();
+		}
+		super.sendCommand(command);
+	}
+
+	/**
+	 * Returns successful response for deferred {@code MAIL FROM} command,
+	 * that is actually read later.
+	 */
+	@Override
+	protected int readServerResponse() throws MessagingException {
+		if (deferResponse) {
+			deferResponse = false;
+			return OK;
+		}
+		return super.readServerResponse();
+	}
+
+	/**
+	 * Reads and ignores responses of all pipelined commands that are not processed.
+	 */
+	private void readPipelinedResponses() throws MessagingException {
+		while (!pipelinedCommands.isEmpty()) {
+			pipelinedCommands.removeFirst();
+			super.readServerResponse();
+		}
+	}
+
+	/**
+	 * Creates {@code RCPT TO} commands in the very same way as the underlying transport does.
+	 * Returns {@code null} when recipients need special handling (groups, DSN), so
+	 * {@code RCPT TO} commands can not be pipelined.
+	 */
+	private List<String> resolveRcptCommands() {
+		if (recipients == null || hasDsnNotify()) {
+			return null;
+		}
+		final List<String> commands = new ArrayList<>(recipients.length);
+		for (final Address address : recipients) {
+			if (!(address instanceof InternetAddress) || ((InternetAddress) address).isGroup()) {
+				return null;
+			}
+			final InternetAddress internetAddress = (InternetAddress) address;
+			commands.add(RCPT_TO + normalizeAddress(internetAddress.getAddress()));
+		}
+		return commands;
+	}
+
+	private boolean hasDsnNotify() {
+		if (!supportsExtension("DSN")) {
+			return false;
+		}
+		if (message instanceof SMTPMessage && ((SMTPMessage) message).getNotifyOptions() != 0) {
+			return true;
+		}
+		return session.getProperty("mail." + name + ".dsn.notify") != null;
+	}
+
+	private static String normalizeAddress(final String address) {
+		if (!address.startsWith("<") && !address.endsWith(">")) {
+			return "<" + address + ">";
+		}
+		return address;
+	}
+}
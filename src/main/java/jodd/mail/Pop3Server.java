@@ -98,7 +98,7 @@ public class Pop3Server extends MailServer<ReceiveMailSession> {
 			PROTOCOL_POP3,
 			createSessionProperties(),
 			authenticator,
-			attachmentStorage,
+			receiveSettings,
 			debugConsumer
 		);
 	}
@@ -31,8 +31,17 @@ import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
 import jakarta.mail.Session;
 import jakarta.mail.Store;
+import jakarta.mail.UIDFolder;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.eclipse.angus.mail.imap.IMAPStore;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 /**
@@ -52,7 +61,7 @@ public class ReceiveMailSession extends MailSession<Store> {
 	Folder folder;
 	String folderName;
 
-	final File attachmentStorage;
+	final ReceiveSettings settings;
 
 	static {
 		setupSystemMailProperties();
@@ -65,8 +74,15 @@ public class ReceiveMailSession extends MailSession<Store> {
 	 * @param store   {@link Store}.
 	 */
 	public ReceiveMailSession(final Session session, final Store store, final File attachmentStorage) {
+		this(session, store, ReceiveSettings.of(attachmentStorage));
+	}
+
+	/**
+	 * Creates new mail session that receives emails with given {@link ReceiveSettings}.
+	 */
+	ReceiveMailSession(final Session session, final Store store, final ReceiveSettings settings) {
 		super(session, store);
-		this.attachmentStorage = attachmentStorage;
+		this.settings = settings;
 	}
 
 	@Override
@@ -314,6 +330,19 @@ public class ReceiveMailSession extends MailSession<Store> {
 			final Flags flagsToUnset,
 			final boolean envelope,
 			final Consumer<Message[]> processedMessageConsumer) {
+		return receiveMessages(filter, flagsToSet, flagsToUnset, envelope, processedMessageConsumer, settings);
+	}
+
+	/**
+	 * The main email receiving method, with given {@link ReceiveSettings}.
+	 */
+	ReceivedEmails receiveMessages(
+			final EmailFilter filter,
+			final Flags flagsToSet,
+			final Flags flagsToUnset,
+			final boolean envelope,
+			final Consumer<Message[]> processedMessageConsumer,
+			final ReceiveSettings settings) {
 		useAndOpenFolderIfNotSet();
 
 		final Message[] messages;
@@ -325,7 +354,7 @@ public class ReceiveMailSession extends MailSession<Store> {
 				messages = folder.search(filter.getSearchTerm());
 			}
 
-			return new ReceivedEmails(this, messages, flagsToSet, flagsToUnset, envelope, processedMessageConsumer);
+			return new ReceivedEmails(this, messages, flagsToSet, flagsToUnset, envelope, processedMessageConsumer, settings);
 		} catch (final MessagingException msgexc) {
 			throw new MailException("Failed to fetch messages", msgexc);
 		}
@@ -335,14 +364,89 @@ public class ReceiveMailSession extends MailSession<Store> {
 	// ---------------------------------------------------------------- update
 
 	/**
-	 * Updates the email flags on the server.
+	 * Updates the email flags on the server. Message is found by its UID, when
+	 * available, so flags are updated correctly even after folder was expunged.
 	 */
 	public void updateEmailFlags(final ReceivedEmail receivedEmail) {
+		updateEmailFlags(new ReceivedEmail[] {receivedEmail});
+	}
+
+	/**
+	 * Updates the flags of many emails on the server. Emails with the same flags
+	 * are updated together, so the number of server requests depends only on the
+	 * number of distinct flags, and not on the number of emails.
+	 *
+	 * @see #updateEmailFlags(ReceivedEmail)
+	 */
+	public void updateEmailFlags(final ReceivedEmail... receivedEmails) {
 		useAndOpenFolderIfNotSet();
+
+		final Map<Flags, List<ReceivedEmail>> emailsByFlags = new LinkedHashMap<>();
+		for (final ReceivedEmail receivedEmail : receivedEmails) {
+			emailsByFlags.computeIfAbsent(receivedEmail.flags(), flags -> new ArrayList<>()).add(receivedEmail);
+		}
+
 		try {
-			folder.setFlags(new int[] {receivedEmail.messageNumber()}, receivedEmail.flags(),true);
+			for (final Map.Entry<Flags, List<ReceivedEmail>> entry : emailsByFlags.entrySet()) {
+				setFlags(entry.getValue(), entry.getKey());
+			}
 		} catch (final MessagingException mex) {
-			throw new MailException("Failed to fetch messages", mex);
+			throw new MailException("Failed to update flags", mex);
+		}
+	}
+
+	private void setFlags(final List<ReceivedEmail> emails, final Flags flags) throws MessagingException {
+		final List<Long> uids = new ArrayList<>();
+		final List<Integer> messageNumbers = new ArrayList<>();
+		for (final ReceivedEmail email : emails) {
+			if (email.uid() != -1 && folder instanceof UIDFolder) {
+				uids.add(email.uid());
+			} else {
+				messageNumbers.add(email.messageNumber());
+			}
+		}
+
+		if (!uids.isEmpty()) {
+			final Message[] messages = ((UIDFolder) folder).getMessagesByUID(uids.stream().mapToLong(Long::longValue).toArray());
+			final Message[] existing = Arrays.stream(messages).filter(Objects::nonNull).toArray(Message[]::new);
+			if (existing.length > 0) {
+				folder.setFlags(existing, flags, true);
+			}
+		}
+		if (!messageNumbers.isEmpty()) {
+			folder.setFlags(messageNumbers.stream().mapToInt(Integer::intValue).toArray(), flags, true);
+		}
+	}
+
+	// ---------------------------------------------------------------- move
+
+	/**
+	 * Moves messages of the current folder to the target folder, in chunks of given size.
+	 * IMAP {@code MOVE} is used when server supports it. Otherwise, each chunk is copied,
+	 * marked as deleted and then expunged; with {@code UID EXPUNGE} when available, so only
+	 * the moved messages are expunged. Messages of a failed chunk are never deleted.
+	 */
+	void moveMessages(final Message[] messages, final String targetFolderName, final int chunkSize) throws MessagingException {
+		final Folder targetFolder = getFolder(targetFolderName);
+		final boolean imap = folder instanceof IMAPFolder && getService() instanceof IMAPStore;
+		final boolean move = imap && ((IMAPStore) getService()).hasCapability("MOVE");
+		final boolean uidExpunge = imap && ((IMAPStore) getService()).hasCapability("UIDPLUS");
+
+		for (int from = 0; from < messages.length; from += chunkSize) {
+			final Message[] chunk = Arrays.copyOfRange(messages, from, Math.min(from + chunkSize, messages.length));
+
+			if (move) {
+				((IMAPFolder) folder).moveMessages(chunk, targetFolder);
+				continue;
+			}
+			folder.copyMessages(chunk, targetFolder);
+			folder.setFlags(chunk, new Flags(Flags.Flag.DELETED), true);
+			if (uidExpunge) {
+				((IMAPFolder) folder).expunge(chunk);
+			}
+			else {
+				folder.expunge();
+			}
 		}
 	}
 
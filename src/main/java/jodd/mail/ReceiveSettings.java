@@ -0,0 +1,116 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.FetchProfile;
+
+import java.io.File;
+
+/**
+ * Settings of receiving emails, configured with {@link MailServer.Builder} and
+ * {@link ReceiverBuilder} and passed down to {@link ReceiveMailSession},
+ * {@link ReceivedEmails} and each {@link ReceivedEmail}. Settings are immutable,
+ * each {@code with} method returns a modified copy.
+ */
+final class ReceiveSettings {
+
+	static final ReceiveSettings DEFAULT = new ReceiveSettings(null, null, null);
+
+	/**
+	 * Store of received attachments, may be {@code null}.
+	 */
+	final AttachmentStore attachmentStore;
+
+	/**
+	 * Thresholds of in-memory attachments, may be {@code null}.
+	 */
+	final SpillThresholds spillThresholds;
+
+	/**
+	 * Digest algorithm of received attachments, may be {@code null}.
+	 */
+	final String attachmentDigest;
+
+	/**
+	 * Whether the content of emails is parsed on demand.
+	 */
+	final boolean lazy;
+
+	/**
+	 * Limits of the downloaded content.
+	 */
+	final ContentLimits contentLimits;
+
+	/**
+	 * Items to prefetch, or {@code null} for the default profile.
+	 */
+	final FetchProfile fetchProfile;
+
+	/**
+	 * Number of messages prefetched at once, or {@code 0} to prefetch all at once.
+	 */
+	final int fetchBatchSize;
+
+	ReceiveSettings(final AttachmentStore attachmentStore, final SpillThresholds spillThresholds, final String attachmentDigest) {
+		this(attachmentStore, spillThresholds, attachmentDigest, false, ContentLimits.NONE, null, 0);
+	}
+
+	private ReceiveSettings(
+			final AttachmentStore attachmentStore,
+			final SpillThresholds spillThresholds,
+			final String attachmentDigest,
+			final boolean lazy,
+			final ContentLimits contentLimits,
+			final FetchProfile fetchProfile,
+			final int fetchBatchSize) {
+		this.attachmentStore = attachmentStore;
+		this.spillThresholds = spillThresholds;
+		this.attachmentDigest = attachmentDigest;
+		this.lazy = lazy;
+		this.contentLimits = contentLimits != null ? contentLimits : ContentLimits.NONE;
+		this.fetchProfile = fetchProfile;
+		this.fetchBatchSize = fetchBatchSize;
+	}
+
+	/**
+	 * Returns settings that save attachments in given folder, or keep them in memory when the folder is {@code null}.
+	 */
+	static ReceiveSettings of(final File attachmentStorage) {
+		return attachmentStorage != null ? new ReceiveSettings(new FileAttachmentStore(attachmentStorage), null, null) : DEFAULT;
+	}
+
+	ReceiveSettings withLazy(final boolean lazy) {
+		return new ReceiveSettings(attachmentStore, spillThresholds, attachmentDigest, lazy, contentLimits, fetchProfile, fetchBatchSize);
+	}
+
+	ReceiveSettings withContentLimits(final ContentLimits contentLimits) {
+		return new ReceiveSettings(attachmentStore, spillThresholds, attachmentDigest, lazy, contentLimits, fetchProfile, fetchBatchSize);
+	}
+
+	ReceiveSettings withFetchProfile(final FetchProfile fetchProfile, final int fetchBatchSize) {
+		return new ReceiveSettings(attachmentStore, spillThresholds, attachmentDigest, lazy, contentLimits, fetchProfile, fetchBatchSize);
+	}
+}
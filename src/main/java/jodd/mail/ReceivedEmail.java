@@ -25,6 +25,8 @@
 
 package jodd.mail;
 
+import jakarta.activation.DataSource;
+import jakarta.activation.FileDataSource;
 import jakarta.mail.Address;
 import jakarta.mail.Flags;
 import jakarta.mail.Message;
@@ -33,19 +35,24 @@ import jakarta.mail.Multipart;
 import jakarta.mail.Part;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.internet.MimePart;
+import jakarta.mail.internet.MimeUtility;
 import jakarta.mail.util.ByteArrayDataSource;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 import static jakarta.mail.Flags.Flag;
-import static jodd.mail.EmailUtil.sanitizeFileName;
 
 /**
  * Received email.
@@ -53,7 +60,7 @@ import static jodd.mail.EmailUtil.sanitizeFileName;
 public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 
 	public static final ReceivedEmail[] EMPTY_ARRAY = new ReceivedEmail[0];
-	private File attachmentStorage;
+	private ReceiveSettings settings = ReceiveSettings.DEFAULT;
 
 	/**
 	 * Static constructor for fluent interface.
@@ -66,7 +73,7 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 
 	@Override
 	public ReceivedEmail clone() {
-		return create()
+		final ReceivedEmail clone = create()
 			//original message
 			.originalMessage(originalMessage())
 
@@ -75,6 +82,7 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 
 			// message number and id
 			.messageNumber(messageNumber())
+			.uid(uid())
 			.messageId(messageId())
 
 			// from / reply-to
@@ -99,6 +107,9 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 			.message(messages())
 			.storeAttachments(attachments())
 			.attachedMessages(attachedMessages());
+
+		clone.truncated = truncated;
+		return clone;
 	}
 
 	/**
@@ -114,13 +125,25 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 	 * @param envelope flag if this is an envelope
 	 */
 	public ReceivedEmail(final Message msg, final boolean envelope, final File attachmentStorage) {
-		this.attachmentStorage = attachmentStorage;
+		this(msg, envelope, ReceiveSettings.of(attachmentStorage));
+	}
+
+	/**
+	 * Creates a {@link ReceivedEmail} from a given {@link Message} with given {@link ReceiveSettings}.
+	 * When lazy, only the envelope and the headers are parsed, while the content is downloaded
+	 * and parsed on the first access to {@link #messages()}, {@link #attachments()} or
+	 * {@link #attachedMessages()}. The folder of the message must still be open at that time.
+	 */
+	ReceivedEmail(final Message msg, final boolean envelope, final ReceiveSettings settings) {
+		this.settings = settings;
 		this.originalMessage = msg;
 		try {
-			parseMessage(msg, envelope);
+			parseMessage(msg, envelope || settings.lazy);
 		} catch (final Exception ex) {
+			discardContent(ex);
 			throw new MailException("Message parsing failed", ex);
 		}
+		this.contentLoaded = envelope || !settings.lazy;
 	}
 
 	/**
@@ -183,6 +206,18 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 	 * @throws MessagingException if there is an error.
 	 */
 	protected void processPart(final Part part) throws MessagingException, IOException {
+		if (settings.contentLimits.isLimited() && !part.isMimeType("multipart/*") && !part.isMimeType("message/rfc822")) {
+			if (isTextBody(part)) {
+				if (settings.contentLimits.maxTextSize() > 0) {
+					addLimitedStringContent(part, settings.contentLimits.maxTextSize());
+					return;
+				}
+			} else if (settings.contentLimits.maxAttachmentSize() > 0 && part.getSize() > settings.contentLimits.maxAttachmentSize()) {
+				addAttachmentInfoOnly(part);
+				return;
+			}
+		}
+
 		final Object content = part.getContent();
 
 		if (content instanceof String) {
@@ -190,12 +225,14 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 		} else if (content instanceof Multipart) {
 			processMultipart((Multipart) content);
 		} else if (content instanceof InputStream) {
-			addAttachment(part, (InputStream) content, attachmentStorage);
+			addAttachment(part, (InputStream) content, settings.attachmentStore);
 		} else if (content instanceof MimeMessage) {
 			final MimeMessage mimeMessage = (MimeMessage) content;
-			attachedMessage(new ReceivedEmail(mimeMessage, false, attachmentStorage));
+			final ReceivedEmail attachedMessage = new ReceivedEmail(mimeMessage, false, settings.withLazy(false));
+			truncated |= attachedMessage.truncated;
+			attachedMessage(attachedMessage);
 		} else {
-			addAttachment(part, part.getInputStream(), attachmentStorage);
+			addAttachment(part, part.getInputStream(), settings.attachmentStore);
 		}
 	}
 
@@ -237,6 +274,62 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 		}
 	}
 
+	/**
+	 * Returns {@code true} if the {@link Part} is a text body, i.e. it would be added as an {@link EmailMessage}.
+	 */
+	private static boolean isTextBody(final Part part) throws MessagingException {
+		final String disposition = part.getDisposition();
+		return part.isMimeType("text/*") && (disposition == null || !disposition.equalsIgnoreCase(Part.ATTACHMENT));
+	}
+
+	/**
+	 * Adds text body as {@link EmailMessage}, reading at most given number of bytes.
+	 * Only the read bytes are downloaded when partial fetch is enabled.
+	 * Truncated text is cut at the last complete character.
+	 */
+	private void addLimitedStringContent(final Part part, final int maxTextSize) throws MessagingException, IOException {
+		final String contentType = part.getContentType();
+		final String encoding = EmailUtil.extractEncoding(contentType, StandardCharsets.US_ASCII.name());
+
+		final byte[] buffer = new byte[maxTextSize + 1];
+		int length = 0;
+		try (final InputStream in = part.getInputStream()) {
+			int read;
+			while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) != -1) {
+				length += read;
+			}
+		}
+
+		final Charset charset = resolveCharset(encoding);
+		final String content;
+		if (length > maxTextSize) {
+			truncated = true;
+			final CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			final CharBuffer chars = CharBuffer.allocate((int) Math.ceil(maxTextSize * (double) decoder.maxCharsPerByte()));
+			// not the end of input, so the incomplete sequence at the cut is left undecoded
+			decoder.decode(ByteBuffer.wrap(buffer, 0, maxTextSize), chars, false);
+			chars.flip();
+			content = chars.toString();
+		} else {
+			content = new String(buffer, 0, length, charset);
+		}
+		message(content, EmailUtil.extractMimeType(contentType), charset.name());
+	}
+
+	/**
+	 * Resolves the Java charset of given MIME charset. Unknown charsets fall back
+	 * to the default charset, so a single odd message does not abort the receiving.
+	 */
+	private static Charset resolveCharset(final String encoding) {
+		try {
+			return Charset.forName(MimeUtility.javaCharset(encoding));
+		} catch (final IllegalArgumentException iaex) {
+			return Charset.forName(MimeUtility.getDefaultJavaCharset());
+		}
+	}
+
 	/**
 	 * Returns the Content-ID of this {@link Part}. Returns {@code null} if none present.
 	 *
@@ -269,6 +362,124 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 		return false;
 	}
 
+	// ---------------------------------------------------------------- lazy content
+
+	private final Object contentLock = new Object();
+	private volatile boolean contentLoaded = true;
+	private boolean contentLoading;
+
+	/**
+	 * Returns {@code true} if the content of the message is parsed.
+	 * Returns {@code false} only for lazy emails, until the content is accessed.
+	 */
+	public boolean isContentLoaded() {
+		return contentLoaded;
+	}
+
+	/**
+	 * Parses the content of the original message, if not already parsed.
+	 * Parsing happens only once, even when accessed from multiple threads.
+	 */
+	private void loadContent() {
+		if (contentLoaded) {
+			return;
+		}
+		synchronized (contentLock) {
+			// content is being added by the parsing itself
+			if (contentLoaded || contentLoading) {
+				return;
+			}
+			contentLoading = true;
+			try {
+				processPart(originalMessage);
+			} catch (final Exception ex) {
+				discardContent(ex);
+				throw new MailException("Message parsing failed", ex);
+			} finally {
+				contentLoading = false;
+			}
+			contentLoaded = true;
+		}
+	}
+
+	@Override
+	public List<EmailMessage> messages() {
+		loadContent();
+		return super.messages();
+	}
+
+	@Override
+	public List<EmailAttachment<? extends DataSource>> attachments() {
+		loadContent();
+		return super.attachments();
+	}
+
+	// ---------------------------------------------------------------- limits
+
+	private boolean truncated;
+
+	/**
+	 * Returns {@code true} if the content was cut by {@link ContentLimits}: some text body
+	 * is truncated or some attachment is received without its content, including those
+	 * of {@link #attachedMessages() attached messages}. Such attachments
+	 * have {@link EmailAttachment#getSize() size} set, while their content is empty.
+	 */
+	public boolean isTruncated() {
+		loadContent();
+		return truncated;
+	}
+
+	// ---------------------------------------------------------------- release
+
+	/**
+	 * Releases the content of received attachments, including those of attached messages:
+	 * temporary files of {@link SpillingDataSource spilled} attachments are deleted and
+	 * attachments kept in the {@link AttachmentStore} are {@link AttachmentStore#release(File) released}.
+	 * Released attachments can not be read anymore. Content that is not loaded yet is not loaded.
+	 *
+	 * @throws MailException if some attachment can not be released.
+	 */
+	public void release() {
+		if (!contentLoaded) {
+			return;
+		}
+		releaseContent();
+	}
+
+	/**
+	 * Releases and removes the content added before the parsing failed.
+	 */
+	private void discardContent(final Exception ex) {
+		try {
+			releaseContent();
+		} catch (final MailException mex) {
+			ex.addSuppressed(mex);
+		}
+		super.messages().clear();
+		super.attachments().clear();
+		attachedMessages.clear();
+	}
+
+	private void releaseContent() {
+		try {
+			for (final EmailAttachment<? extends DataSource> attachment : super.attachments()) {
+				final DataSource dataSource = attachment.getDataSource();
+				if (dataSource instanceof SpillingDataSource) {
+					((SpillingDataSource) dataSource).release();
+				}
+				else if (settings.attachmentStore != null && dataSource instanceof FileDataSource) {
+					settings.attachmentStore.release(((FileDataSource) dataSource).getFile());
+				}
+			}
+		}
+		catch (final IOException ioex) {
+			throw new MailException("Failed to release attachments", ioex);
+		}
+		for (final ReceivedEmail attachedMessage : attachedMessages) {
+			attachedMessage.release();
+		}
+	}
+
 	// ---------------------------------------------------------------- original message
 
 	/**
@@ -372,6 +583,7 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 	// ---------------------------------------------------------------- additional properties
 
 	private int messageNumber;
+	private long uid = -1;
 	private String messageId;
 
 	/**
@@ -383,6 +595,15 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 		return messageNumber;
 	}
 
+	/**
+	 * Returns message UID, or {@code -1} if folder does not support UIDs
+	 * or UIDs were not in the fetch profile.
+	 * Unlike message number, UID does not change when folder is expunged.
+	 */
+	public long uid() {
+		return uid;
+	}
+
 	/**
 	 * Returns message ID if set by server.
 	 */
@@ -401,6 +622,14 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 		return this;
 	}
 
+	/**
+	 * Sets message UID.
+	 */
+	public ReceivedEmail uid(final long uid) {
+		this.uid = uid;
+		return this;
+	}
+
 	/**
 	 * Sets message ID.
 	 */
@@ -441,14 +670,26 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 	 * @return this
 	 * @see #attachment(EmailAttachment)
 	 */
-	private ReceivedEmail addAttachment(final Part part, final InputStream content, final File attachmentStorage) throws MessagingException, IOException {
+	private ReceivedEmail addAttachment(final Part part, final InputStream content, final AttachmentStore attachmentStore) throws MessagingException, IOException {
 		final EmailAttachmentBuilder builder = addAttachmentInfo(part);
-		builder.content(content, part.getContentType());
-		if (attachmentStorage != null) {
-			final String name = sanitizeFileName(messageId) + "-" + (this.attachments().size() + 1);
-			return storeAttachment(builder.buildFileDataSource(name, attachmentStorage));
+		final AttachmentInspector inspector = new AttachmentInspector(settings.attachmentDigest);
+		final InputStream inspectedContent = inspector.inspect(content);
+		final EmailAttachment<? extends DataSource> attachment;
+		if (attachmentStore != null) {
+			final String name = messageId + "-" + (this.attachments().size() + 1);
+			attachment = builder.buildFileDataSource(name, attachmentStore, inspectedContent);
+		}
+		else if (settings.spillThresholds != null) {
+			final SpillingDataSource dataSource =
+				SpillingDataSource.read(inspectedContent, builder.resolveContentType(part.getContentType()), settings.spillThresholds);
+			attachment = builder.content(dataSource).build();
+		}
+		else {
+			builder.content(inspectedContent, part.getContentType());
+			attachment = builder.buildByteArrayDataSource();
 		}
-		return storeAttachment(builder.buildByteArrayDataSource());
+		inspector.applyTo(attachment);
+		return storeAttachment(attachment);
 	}
 
 	/**
@@ -463,7 +704,25 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 		final EmailAttachmentBuilder builder = addAttachmentInfo(part);
 		builder.content(content, part.getContentType());
 		final EmailAttachment<ByteArrayDataSource> attachment = builder.buildByteArrayDataSource();
-		attachment.setSize(content.length);
+		final AttachmentInspector inspector = new AttachmentInspector(settings.attachmentDigest);
+		inspector.update(content, 0, content.length);
+		inspector.applyTo(attachment);
+		return storeAttachment(attachment);
+	}
+
+	/**
+	 * Adds received attachment without its content. The size of the attachment is set
+	 * to the size of the part, as reported by the server; usually in the transfer encoding.
+	 *
+	 * @param part {@link Part}.
+	 * @return this
+	 */
+	private ReceivedEmail addAttachmentInfoOnly(final Part part) throws MessagingException {
+		final EmailAttachmentBuilder builder = addAttachmentInfo(part);
+		builder.content(new byte[0], part.getContentType());
+		final EmailAttachment<ByteArrayDataSource> attachment = builder.buildByteArrayDataSource();
+		attachment.setSize(part.getSize());
+		truncated = true;
 		return storeAttachment(attachment);
 	}
 
@@ -521,6 +780,7 @@ public class ReceivedEmail extends CommonEmail<ReceivedEmail> {
 	 * @return {@link List} of {@link ReceivedEmail}s.
 	 */
 	public List<ReceivedEmail> attachedMessages() {
+		loadContent();
 		return attachedMessages;
 	}
 
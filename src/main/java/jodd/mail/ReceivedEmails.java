@@ -5,8 +5,21 @@ import jakarta.mail.Flags;
 import jakarta.mail.Folder;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
+import jakarta.mail.UIDFolder;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.eclipse.angus.mail.imap.IMAPMessage;
+import org.eclipse.angus.mail.pop3.POP3Message;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ReceivedEmails {
 	private final Message[] messages;
@@ -15,6 +28,8 @@ public class ReceivedEmails {
 	private final Flags flagsToSet;
 	private final Flags flagsToUnset;
 	private final Consumer<Message[]> processedMessageConsumer;
+	private final ReceiveSettings settings;
+	private final FetchProfile fetchProfile;
 
 	public ReceivedEmails(
 			final ReceiveMailSession session,
@@ -23,6 +38,23 @@ public class ReceivedEmails {
 			final Flags flagsToUnset,
 			final boolean envelope,
 			final Consumer<Message[]> processedMessageConsumer
+	) {
+		this(session, messages, flagsToSet, flagsToUnset, envelope, processedMessageConsumer,
+			session != null ? session.settings : ReceiveSettings.DEFAULT);
+	}
+
+	/**
+	 * Creates received emails with given {@link ReceiveSettings}, that bulk-prefetch
+	 * their {@link FetchProfile} before parsing, or the default one when not set.
+	 */
+	ReceivedEmails(
+			final ReceiveMailSession session,
+			final Message[] messages,
+			final Flags flagsToSet,
+			final Flags flagsToUnset,
+			final boolean envelope,
+			final Consumer<Message[]> processedMessageConsumer,
+			final ReceiveSettings settings
 	) {
 		this.session = session;
 		this.messages = messages;
@@ -30,6 +62,36 @@ public class ReceivedEmails {
 		this.flagsToUnset = flagsToUnset;
 		this.envelope = envelope;
 		this.processedMessageConsumer = processedMessageConsumer;
+		this.settings = settings;
+		this.fetchProfile = settings.fetchProfile != null ? settings.fetchProfile :
+			defaultFetchProfile(session != null ? session.folder : null, envelope || settings.lazy);
+	}
+
+	/**
+	 * Returns the default {@link FetchProfile} for given folder. For IMAP folders these are
+	 * envelopes, flags, UIDs and all headers, and the content info (i.e. body structure)
+	 * when the content is received. Other folders, e.g. POP3, prefetch only envelopes and flags
+	 * when only envelopes are received, since they fetch the headers with a command per message.
+	 */
+	public static FetchProfile defaultFetchProfile(final Folder folder, final boolean envelope) {
+		final FetchProfile fetchProfile = new FetchProfile();
+
+		if (!(folder instanceof IMAPFolder)) {
+			if (envelope) {
+				fetchProfile.add(FetchProfile.Item.ENVELOPE);
+				fetchProfile.add(FetchProfile.Item.FLAGS);
+			}
+			return fetchProfile;
+		}
+
+		fetchProfile.add(FetchProfile.Item.ENVELOPE);
+		fetchProfile.add(FetchProfile.Item.FLAGS);
+		fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+		fetchProfile.add(IMAPFolder.FetchProfileItem.HEADERS);
+		if (!envelope) {
+			fetchProfile.add(FetchProfile.Item.CONTENT_INFO);
+		}
+		return fetchProfile;
 	}
 
 	public ReceivedEmail[] fetch() {
@@ -49,56 +111,242 @@ public class ReceivedEmails {
 
 		final boolean isReadOnly = session.folder.getMode() == Folder.READ_ONLY;
 
-		if (envelope) {
-			final FetchProfile fetchProfile = new FetchProfile();
+		final int batchSize = settings.fetchBatchSize > 0 ? settings.fetchBatchSize : messages.length;
+		final ReceivedEmail[] emails = new ReceivedEmail[messages.length];
+
+		for (int from = 0; from < messages.length; from += batchSize) {
+			final int to = Math.min(from + batchSize, messages.length);
+			final Message[] batch = Arrays.copyOfRange(messages, from, to);
 
-			fetchProfile.add(FetchProfile.Item.ENVELOPE);
-			fetchProfile.add(FetchProfile.Item.FLAGS);
+			prefetch(batch);
 
-			session.folder.fetch(messages, fetchProfile);
+			// we need to parse messages BEFORE flags are set!
+			for (int i = from; i < to; i++) {
+				emails[i] = receive(messages[i]);
+			}
+			if (!isReadOnly) {
+				storeFlags(batch, Arrays.copyOfRange(emails, from, to));
+			}
 		}
 
-		final ReceivedEmail[] emails = new ReceivedEmail[messages.length];
+		if (processedMessageConsumer != null) {
+			processedMessageConsumer.accept(messages);
+		}
+
+		expungeIfDeleted(isReadOnly);
+
+		return emails;
+	}
 
-		for (int i = 0; i < messages.length; i++) {
-			final Message msg = messages[i];
+	/**
+	 * Returns a lazy stream of received emails. Messages are fetched and parsed
+	 * in windows of given size. Once the next window is fetched, the emails of the
+	 * previous window are no longer referenced by the stream, and the data cached by
+	 * their messages is released: the headers of IMAP messages and the content of
+	 * POP3 messages. Lightweight messages of the whole folder are still kept by the
+	 * folder itself. The stream should be closed after use, so the processing of
+	 * the last window is completed.
+	 *
+	 * @param windowSize number of messages fetched at once.
+	 */
+	public Stream<ReceivedEmail> stream(final int windowSize) {
+		final WindowIterator iterator = new WindowIterator(windowSize);
+		return StreamSupport
+			.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(iterator::finish);
+	}
 
-			// we need to parse message BEFORE flags are set!
-			emails[i] = new ReceivedEmail(msg, envelope, session.attachmentStorage);
+	/**
+	 * Returns a lazy iterator of received emails.
+	 * The iterator completes the processing once all emails are consumed.
+	 *
+	 * @param windowSize number of messages fetched at once.
+	 * @see #stream(int)
+	 */
+	public Iterator<ReceivedEmail> iterator(final int windowSize) {
+		return new WindowIterator(windowSize);
+	}
 
-			if (!EmailUtil.isEmptyFlags(flagsToSet)) {
-				emails[i].flags(flagsToSet);
-				if (!isReadOnly) {
-					msg.setFlags(flagsToSet, true);
-				}
+	/**
+	 * Iterates messages in windows.
+	 */
+	private class WindowIterator implements Iterator<ReceivedEmail> {
+		private final int windowSize;
+		private boolean isReadOnly;
+		private Message[] window;
+		private ReceivedEmail[] windowEmails;
+		private int windowStart;
+		private int index;
+		private boolean finished;
+
+		private WindowIterator(final int windowSize) {
+			if (windowSize <= 0) {
+				throw new MailException("Window size must be positive");
 			}
+			this.windowSize = windowSize;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (index < messages.length) {
+				return true;
+			}
+			finish();
+			return false;
+		}
 
-			if (!EmailUtil.isEmptyFlags(flagsToUnset)) {
-				emails[i].flags().remove(flagsToUnset);
-				if (!isReadOnly) {
-					msg.setFlags(flagsToUnset, false);
+		@Override
+		public ReceivedEmail next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			try {
+				if (window == null || index == windowStart + window.length) {
+					nextWindow();
 				}
+				final ReceivedEmail email = receive(messages[index]);
+				windowEmails[index - windowStart] = email;
+				index++;
+				return email;
+			}
+			catch (final MessagingException ex) {
+				throw new MailException("Failed to process fetched messages", ex);
 			}
+		}
 
-			if (EmailUtil.isEmptyFlags(flagsToSet) && !emails[i].isSeen()) {
-				if (!isReadOnly) {
-					msg.setFlag(Flags.Flag.SEEN, false);
+		private void nextWindow() throws MessagingException {
+			if (window == null) {
+				isReadOnly = session.folder.getMode() == Folder.READ_ONLY;
+			}
+			else {
+				completeWindow(window.length);
+			}
+			windowStart = index;
+			window = Arrays.copyOfRange(messages, index, Math.min(index + windowSize, messages.length));
+			windowEmails = new ReceivedEmail[window.length];
+			prefetch(window);
+		}
+
+		/**
+		 * Completes processing of the consumed messages of current window
+		 * and releases their content.
+		 */
+		private void completeWindow(final int consumed) throws MessagingException {
+			final Message[] processed = consumed == window.length ? window : Arrays.copyOf(window, consumed);
+			if (processed.length > 0 && !isReadOnly) {
+				storeFlags(processed, Arrays.copyOf(windowEmails, consumed));
+			}
+			if (processed.length > 0 && processedMessageConsumer != null) {
+				processedMessageConsumer.accept(processed);
+			}
+			for (final Message message : window) {
+				release(message);
+			}
+		}
+
+		/**
+		 * Completes processing of the last window and expunges the folder, when needed.
+		 */
+		void finish() {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			if (window == null) {
+				return;
+			}
+			try {
+				completeWindow(index - windowStart);
+				window = null;
+				windowEmails = null;
+				expungeIfDeleted(isReadOnly);
+			}
+			catch (final MessagingException ex) {
+				throw new MailException("Failed to process fetched messages", ex);
+			}
+		}
+	}
+
+	/**
+	 * Bulk-fetches the items of the fetch profile for given messages.
+	 */
+	private void prefetch(final Message[] messagesToFetch) throws MessagingException {
+		if (fetchProfile.getItems().length == 0 && fetchProfile.getHeaderNames().length == 0) {
+			return;
+		}
+		session.folder.fetch(messagesToFetch, fetchProfile);
+	}
+
+	/**
+	 * Parses a message and updates flags of the received email.
+	 * Flags on the server are updated later, for the whole batch.
+	 * The UID is set only when it is prefetched, as it would be fetched per message otherwise.
+	 */
+	private ReceivedEmail receive(final Message msg) throws MessagingException {
+		final ReceivedEmail email = new ReceivedEmail(msg, envelope, settings);
+
+		if (fetchProfile.contains(UIDFolder.FetchProfileItem.UID) && session.folder instanceof UIDFolder) {
+			email.uid(((UIDFolder) session.folder).getUID(msg));
+		}
+
+		if (!EmailUtil.isEmptyFlags(flagsToSet)) {
+			email.flags(flagsToSet);
+		}
+
+		if (!EmailUtil.isEmptyFlags(flagsToUnset)) {
+			email.flags().remove(flagsToUnset);
+		}
+		return email;
+	}
+
+	/**
+	 * Updates flags of the batch of messages on the server, with a single
+	 * command per flag change, instead of one command per message.
+	 */
+	private void storeFlags(final Message[] batch, final ReceivedEmail[] emails) throws MessagingException {
+		if (!EmailUtil.isEmptyFlags(flagsToSet)) {
+			session.folder.setFlags(batch, flagsToSet, true);
+		}
+
+		if (!EmailUtil.isEmptyFlags(flagsToUnset)) {
+			session.folder.setFlags(batch, flagsToUnset, false);
+		}
+
+		if (EmailUtil.isEmptyFlags(flagsToSet)) {
+			// servers may set SEEN flag when message is received, so we force messages to remain unseen
+			final List<Message> unseen = new ArrayList<>(batch.length);
+			for (int i = 0; i < batch.length; i++) {
+				if (!emails[i].isSeen()) {
+					unseen.add(batch[i]);
 				}
 			}
+			if (!unseen.isEmpty()) {
+				session.folder.setFlags(unseen.toArray(new Message[0]), new Flags(Flags.Flag.SEEN), false);
+			}
 		}
+	}
 
-		if (processedMessageConsumer != null) {
-			processedMessageConsumer.accept(messages);
+	/**
+	 * Releases the data cached by the message. It is fetched again when needed.
+	 */
+	private static void release(final Message msg) {
+		if (msg instanceof IMAPMessage) {
+			((IMAPMessage) msg).invalidateHeaders();
 		}
+		else if (msg instanceof POP3Message) {
+			((POP3Message) msg).invalidate(true);
+		}
+	}
 
-		// if messages were marked to be deleted, we need to expunge the folder
+	/**
+	 * If messages were marked to be deleted, we need to expunge the folder.
+	 */
+	private void expungeIfDeleted(final boolean isReadOnly) throws MessagingException {
 		if (!EmailUtil.isEmptyFlags(flagsToSet) && !isReadOnly) {
 			if (flagsToSet.contains(Flags.Flag.DELETED)) {
 				session.folder.expunge();
 			}
 		}
-
-		return emails;
 	}
 
 	public static ReceivedEmails empty() {
@@ -25,23 +25,42 @@
 
 package jodd.mail;
 
+import jakarta.mail.FetchProfile;
 import jakarta.mail.Flags;
 import jakarta.mail.MessagingException;
 
+import java.util.Iterator;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Fluent builder
  */
 public class ReceiverBuilder {
 
+	/**
+	 * Default number of messages fetched at once when streaming.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 100;
+
+	/**
+	 * Default number of messages moved at once.
+	 */
+	public static final int DEFAULT_MOVE_CHUNK_SIZE = 1000;
+
 	private final ReceiveMailSession session;
 	private EmailFilter filter;
 	private final Flags flagsToSet = new Flags();
 	private final Flags flagsToUnset = new Flags();
 	private boolean envelopeOnly;
+	private boolean lazy;
 	private String targetFolder;
+	private int moveChunkSize;
 	private String fromFolder;
+	private FetchProfile fetchProfile;
+	private int fetchBatchSize;
+	private int maxTextSize;
+	private long maxAttachmentSize;
 
 	public ReceiverBuilder(final ReceiveMailSession session) {
 		this.session = session;
@@ -97,10 +116,23 @@ public class ReceiverBuilder {
 
 	/**
 	 * Defines target folder where message will be moved.
+	 * Messages are moved in chunks of {@link #DEFAULT_MOVE_CHUNK_SIZE}.
 	 */
 	public ReceiverBuilder moveToFolder(final String targetFolder) {
-		this.markDeleted();
+		return moveToFolder(targetFolder, DEFAULT_MOVE_CHUNK_SIZE);
+	}
+
+	/**
+	 * Defines target folder where message will be moved, in chunks of given size.
+	 * IMAP {@code MOVE} command is used when server supports it, otherwise messages
+	 * are copied and then deleted, one chunk at a time.
+	 */
+	public ReceiverBuilder moveToFolder(final String targetFolder, final int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new MailException("Chunk size must be positive");
+		}
 		this.targetFolder = targetFolder;
+		this.moveChunkSize = chunkSize;
 		return this;
 	}
 
@@ -112,6 +144,65 @@ public class ReceiverBuilder {
 		return this;
 	}
 
+	/**
+	 * Parses the content of received emails on demand. Only the envelope and headers are
+	 * received upfront, while bodies and attachments are downloaded on the first access
+	 * to {@link ReceivedEmail#messages()}, {@link ReceivedEmail#attachments()} or
+	 * {@link ReceivedEmail#attachedMessages()}. The session must be still open at that time,
+	 * and the messages must not be expunged yet, so deleting or moving can be used
+	 * only with {@link #stream()}; {@link #get()} rejects such combination.
+	 */
+	public ReceiverBuilder lazy() {
+		this.lazy = true;
+		return this;
+	}
+
+	/**
+	 * Defines the items that are bulk-prefetched for all messages before they are parsed,
+	 * e.g. {@code ENVELOPE}, {@code FLAGS}, {@code CONTENT_INFO}, {@code SIZE},
+	 * {@code UIDFolder.FetchProfileItem.UID} or selected header names. This replaces
+	 * the per-message requests the server would be sent otherwise.
+	 * By default, {@link ReceivedEmails#defaultFetchProfile(jakarta.mail.Folder, boolean)} is used.
+	 */
+	public ReceiverBuilder fetchProfile(final FetchProfile fetchProfile) {
+		this.fetchProfile = fetchProfile;
+		return this;
+	}
+
+	/**
+	 * Defines how many messages are prefetched at once. By default, all messages
+	 * are prefetched at once; when streaming, the whole window is prefetched.
+	 */
+	public ReceiverBuilder fetchBatchSize(final int fetchBatchSize) {
+		this.fetchBatchSize = fetchBatchSize;
+		return this;
+	}
+
+	/**
+	 * Limits the number of bytes downloaded for each text body. Longer texts are
+	 * truncated, see {@link ReceivedEmail#isTruncated()}. Only the limited number of
+	 * bytes is downloaded when partial fetch is enabled with {@link MailServer.Builder#fetchSize(int)}.
+	 */
+	public ReceiverBuilder maxTextSize(final int maxTextSize) {
+		if (maxTextSize < 0) {
+			throw new MailException("Maximal text size must not be negative");
+		}
+		this.maxTextSize = maxTextSize;
+		return this;
+	}
+
+	/**
+	 * Skips downloading of attachments larger than given number of bytes. Such attachments
+	 * are still received, with their name, content type and size, but with no content.
+	 */
+	public ReceiverBuilder maxAttachmentSize(final long maxAttachmentSize) {
+		if (maxAttachmentSize < 0) {
+			throw new MailException("Maximal attachment size must not be negative");
+		}
+		this.maxAttachmentSize = maxAttachmentSize;
+		return this;
+	}
+
 	/**
 	 * Receives the emails as specified by the builder.
 	 */
@@ -119,24 +210,77 @@ public class ReceiverBuilder {
 		return with(ReceiverRunner.EMPTY_CONSUMER).fetch();
 	}
 
+	/**
+	 * Lazy emails load their content after all of them are received, when deleted
+	 * messages are already expunged and moved messages are gone.
+	 */
+	private void checkLazyNotRemoved() {
+		if (lazy && (targetFolder != null || flagsToSet.contains(Flags.Flag.DELETED))) {
+			throw new MailException("Lazy emails can not be deleted or moved when received at once, use stream() instead");
+		}
+	}
+
+	/**
+	 * Receives the emails as a lazy stream, fetched in windows of {@link #DEFAULT_WINDOW_SIZE} messages.
+	 *
+	 * @see #stream(int)
+	 */
+	public Stream<ReceivedEmail> stream() {
+		return stream(DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Receives the emails as a lazy stream. Messages are fetched and parsed in windows
+	 * of given size, so only the emails of a single window are kept by the stream,
+	 * regardless of the folder size.
+	 * Flags are applied to the messages as they are consumed. The stream should be
+	 * closed after use (e.g. with try-with-resources), to move and expunge the
+	 * consumed messages of the last window.
+	 *
+	 * @param windowSize number of messages fetched at once.
+	 */
+	public Stream<ReceivedEmail> stream(final int windowSize) {
+		return receiveMessages().stream(windowSize);
+	}
+
+	/**
+	 * Receives the emails as a lazy iterator, fetched in windows of given size.
+	 * The processing is completed once all emails are consumed.
+	 *
+	 * @param windowSize number of messages fetched at once.
+	 * @see #stream(int)
+	 */
+	public Iterator<ReceivedEmail> iterator(final int windowSize) {
+		return receiveMessages().iterator(windowSize);
+	}
+
 	/**
 	 * Wraps the received emails, so they not get processed until user really needs them.
 	 */
 	public ReceiverRunner with(final Consumer<ReceivedEmails> consumer) {
+		checkLazyNotRemoved();
+		return new ReceiverRunner(receiveMessages(), consumer);
+	}
+
+	private ReceivedEmails receiveMessages() {
 		if (fromFolder != null) {
 			session.useFolder(fromFolder);
 		}
 
-		final ReceivedEmails receivedEmails = session.receiveMessages(filter, flagsToSet, flagsToUnset, envelopeOnly, messages -> {
+		final ReceiveSettings settings = session.settings
+			.withLazy(lazy)
+			.withContentLimits(new ContentLimits(maxTextSize, maxAttachmentSize))
+			.withFetchProfile(fetchProfile, fetchBatchSize);
+
+		return session.receiveMessages(filter, flagsToSet, flagsToUnset, envelopeOnly, messages -> {
 			if (targetFolder != null) {
 				try {
-					session.folder.copyMessages(messages, session.getFolder(targetFolder));
+					session.moveMessages(messages, targetFolder, moveChunkSize);
 				} catch (final MessagingException e) {
-					throw new MailException("Copying messages failed");
+					throw new MailException("Moving messages failed", e);
 				}
 			}
-		});
-		return new ReceiverRunner(receivedEmails, consumer);
+		}, settings);
 	}
 
 	public static class ReceiverRunner {
@@ -0,0 +1,307 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link SendThrottle} that limits the rate and the concurrency of sending, per relay host.
+ * The rate is limited by a lock-free token bucket. When relay replies that it is busy
+ * ({@code 421} or {@code 451}), the rate is reduced; every successful send increases it
+ * again, up to the configured rate. This way the sending rate settles just under the
+ * relay limit.
+ */
+public class RelayThrottle implements SendThrottle {
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Returns new throttle builder.
+	 */
+	public static Builder create() {
+		return new Builder();
+	}
+
+	private final double messagesPerSecond;
+	private final int burst;
+	private final int maxConcurrent;
+	private final double backoffFactor;
+	private final double minMessagesPerSecond;
+	private final long acquireTimeout;
+	private final ConcurrentMap<String, Relay> relays = new ConcurrentHashMap<>();
+
+	protected RelayThrottle(final Builder builder) {
+		this.messagesPerSecond = builder.messagesPerSecond;
+		this.burst = builder.burst;
+		this.maxConcurrent = builder.maxConcurrent;
+		this.backoffFactor = builder.backoffFactor;
+		this.minMessagesPerSecond = builder.minMessagesPerSecond;
+		this.acquireTimeout = builder.acquireTimeout;
+	}
+
+	@Override
+	public void acquire(final String relayHost) {
+		final Relay relay = relay(relayHost);
+
+		if (relay.permits != null) {
+			acquirePermit(relay, relayHost);
+		}
+		try {
+			relay.reserve();
+		}
+		catch (final RuntimeException rex) {
+			if (relay.permits != null) {
+				relay.permits.release();
+			}
+			throw rex;
+		}
+	}
+
+	@Override
+	public void release(final String relayHost, final int replyCode) {
+		final Relay relay = relay(relayHost);
+
+		if (isBusy(replyCode)) {
+			relay.slowDown();
+		}
+		else if (replyCode >= 200 && replyCode < 300) {
+			relay.speedUp();
+		}
+
+		if (relay.permits != null) {
+			relay.permits.release();
+		}
+	}
+
+	/**
+	 * Returns current sending rate of the relay, in messages per second.
+	 */
+	public double getMessagesPerSecond(final String relayHost) {
+		return (double) NANOS_PER_SECOND / relay(relayHost).interval.get();
+	}
+
+	/**
+	 * Returns {@code true} if reply code means that relay is busy and sending should slow down.
+	 */
+	protected boolean isBusy(final int replyCode) {
+		return replyCode == 421 || replyCode == 451;
+	}
+
+	// ---------------------------------------------------------------- internal
+
+	private Relay relay(final String relayHost) {
+		return relays.computeIfAbsent(relayHost, host -> new Relay());
+	}
+
+	private void acquirePermit(final Relay relay, final String relayHost) {
+		try {
+			if (acquireTimeout <= 0) {
+				relay.permits.acquire();
+			}
+			else if (!relay.permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+				throw new MailException("Timeout waiting to send to relay: " + relayHost);
+			}
+		}
+		catch (final InterruptedException iex) {
+			Thread.currentThread().interrupt();
+			throw new MailException("Interrupted while waiting to send to relay: " + relayHost, iex);
+		}
+	}
+
+	/**
+	 * State of a single relay.
+	 */
+	private class Relay {
+		private final long minInterval = (long) (NANOS_PER_SECOND / messagesPerSecond);
+		private final long maxInterval = (long) (NANOS_PER_SECOND / minMessagesPerSecond);
+		private final Semaphore permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+
+		/**
+		 * Current interval between two messages, in nanoseconds.
+		 */
+		private final AtomicLong interval = new AtomicLong(minInterval);
+
+		/**
+		 * Theoretical time when the next message may be sent, ignoring the burst.
+		 */
+		private final AtomicLong nextSendTime = new AtomicLong(System.nanoTime());
+
+		/**
+		 * Reserves the next sending slot and waits for it. Slots are reserved
+		 * with a compare-and-set, so callers never block each other.
+		 */
+		private void reserve() {
+			final long currentInterval = interval.get();
+			final long tolerance = (burst - 1) * currentInterval;
+
+			long now;
+			long slot;
+			while (true) {
+				now = System.nanoTime();
+				final long next = nextSendTime.get();
+				slot = Math.max(next, now);
+				if (nextSendTime.compareAndSet(next, slot + currentInterval)) {
+					break;
+				}
+			}
+
+			long waitNanos = slot - tolerance - now;
+			final long deadline = now + waitNanos;
+			while (waitNanos > 0) {
+				LockSupport.parkNanos(this, waitNanos);
+				if (Thread.interrupted()) {
+					Thread.currentThread().interrupt();
+					throw new MailException("Interrupted while waiting to send");
+				}
+				waitNanos = deadline - System.nanoTime();
+			}
+		}
+
+		/**
+		 * Multiplicative decrease of the rate.
+		 */
+		private void slowDown() {
+			long current;
+			long updated;
+			do {
+				current = interval.get();
+				updated = Math.min(maxInterval, (long) (current / backoffFactor));
+			} while (!interval.compareAndSet(current, updated));
+
+			// no new messages until the relay recovers
+			final long pause = System.nanoTime() + updated;
+			nextSendTime.accumulateAndGet(pause, Math::max);
+		}
+
+		/**
+		 * Additive increase of the rate, up to the configured rate.
+		 */
+		private void speedUp() {
+			long current;
+			long updated;
+			do {
+				current = interval.get();
+				if (current == minInterval) {
+					return;
+				}
+				final double rate = (double) NANOS_PER_SECOND / current + messagesPerSecond / 100;
+				updated = Math.max(minInterval, (long) (NANOS_PER_SECOND / rate));
+			} while (!interval.compareAndSet(current, updated));
+		}
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Builder of {@link RelayThrottle}.
+	 */
+	public static class Builder {
+		private double messagesPerSecond = 10;
+		private int burst = 1;
+		private int maxConcurrent = 0;
+		private double backoffFactor = 0.75;
+		private double minMessagesPerSecond = 0.1;
+		private long acquireTimeout = 0;
+
+		/**
+		 * Sets maximal number of messages sent per second to a relay.
+		 * By default, this is {@code 10}.
+		 */
+		public Builder messagesPerSecond(final double messagesPerSecond) {
+			this.messagesPerSecond = messagesPerSecond;
+			return this;
+		}
+
+		/**
+		 * Sets number of messages that may be sent at once, above the rate,
+		 * when relay was not used for a while. By default, this is {@code 1}.
+		 */
+		public Builder burst(final int burst) {
+			this.burst = burst;
+			return this;
+		}
+
+		/**
+		 * Sets maximal number of messages sent to a relay at the same time.
+		 * By default, this is {@code 0}, i.e. there is no limit.
+		 */
+		public Builder maxConcurrent(final int maxConcurrent) {
+			this.maxConcurrent = maxConcurrent;
+			return this;
+		}
+
+		/**
+		 * Sets the factor the rate is multiplied with when relay is busy.
+		 * By default, this is {@code 0.75}.
+		 */
+		public Builder backoffFactor(final double backoffFactor) {
+			this.backoffFactor = backoffFactor;
+			return this;
+		}
+
+		/**
+		 * Sets the lowest rate the back-off may reach, in messages per second.
+		 * By default, this is {@code 0.1}.
+		 */
+		public Builder minMessagesPerSecond(final double minMessagesPerSecond) {
+			this.minMessagesPerSecond = minMessagesPerSecond;
+			return this;
+		}
+
+		/**
+		 * Sets how long, in milliseconds, to wait for a free concurrency slot.
+		 * By default, this is {@code 0}, i.e. wait forever.
+		 */
+		public Builder acquireTimeout(final long acquireTimeout) {
+			this.acquireTimeout = acquireTimeout;
+			return this;
+		}
+
+		/**
+		 * Creates new {@link RelayThrottle}.
+		 */
+		public RelayThrottle build() {
+			if (messagesPerSecond <= 0) {
+				throw new MailException("Rate must be positive");
+			}
+			if (burst <= 0) {
+				throw new MailException("Burst must be positive");
+			}
+			if (backoffFactor <= 0 || backoffFactor >= 1) {
+				throw new MailException("Back-off factor must be between 0 and 1");
+			}
+			if (minMessagesPerSecond <= 0 || minMessagesPerSecond > messagesPerSecond) {
+				throw new MailException("Minimal rate must be positive and not greater than the rate");
+			}
+			return new RelayThrottle(this);
+		}
+	}
+}
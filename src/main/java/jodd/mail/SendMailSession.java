@@ -27,21 +27,31 @@ package jodd.mail;
 
 import jakarta.activation.DataHandler;
 import jakarta.activation.DataSource;
+import jakarta.mail.Address;
 import jakarta.mail.MessagingException;
 import jakarta.mail.Part;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.Session;
 import jakarta.mail.Transport;
+import jakarta.mail.URLName;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeBodyPart;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
 import jodd.util.StringPool;
+import jodd.util.ArraysUtil;
+import jodd.util.StringTemplateParser;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import static jakarta.mail.Message.RecipientType;
 
@@ -54,11 +64,16 @@ public class SendMailSession extends MailSession<Transport> {
 	private static final String RELATED = "related";
 	private static final String CHARSET = ";charset=";
 	private static final String INLINE = "inline";
+	private static final String CONTENT_TRANSFER_ENCODING = "Content-Transfer-Encoding";
+	private static final String BASE64 = "base64";
 
 	static {
 		setupSystemMailProperties();
 	}
 
+	protected SendThrottle sendThrottle;
+	protected String relay;
+
 	/**
 	 * Creates new mail session.
 	 *
@@ -74,6 +89,17 @@ public class SendMailSession extends MailSession<Transport> {
 		return (Transport) service;
 	}
 
+	/**
+	 * Sets the {@link SendThrottle} used before each message is sent to the relay.
+	 *
+	 * @param sendThrottle throttle, or {@code null} to send without throttling.
+	 * @param relay        relay host name, passed to the throttle.
+	 */
+	public void setThrottle(final SendThrottle sendThrottle, final String relay) {
+		this.sendThrottle = sendThrottle;
+		this.relay = relay;
+	}
+
 	/**
 	 * Prepares message and sends it. Returns Message ID of sent email.
 	 *
@@ -83,35 +109,322 @@ public class SendMailSession extends MailSession<Transport> {
 	public String sendMail(final Email email) {
 		try {
 			final MimeMessage msg = createMessage(email);
-			getService().sendMessage(msg, msg.getAllRecipients());
+			sendMessage(msg, msg.getAllRecipients());
+			return msg.getMessageID();
+		} catch (final MessagingException msgexc) {
+			throw new MailException("Failed to send email: " + email, msgexc);
+		}
+	}
+
+	/**
+	 * Sends the {@link EmailTemplate} to recipients of given {@link Email}. Encoded content
+	 * of the template is reused, only the headers are created for each email. Sender,
+	 * reply-to and subject of the email are used when set, otherwise those of the template.
+	 * Headers of the email are added to the template headers.
+	 *
+	 * @param template {@link EmailTemplate} with the content.
+	 * @param email    {@link Email} with recipients and headers.
+	 * @return String representing message ID.
+	 */
+	public String sendMail(final EmailTemplate template, final Email email) {
+		return sendMail(template, email, null);
+	}
+
+	/**
+	 * Sends the {@link EmailTemplate} to recipients of given {@link Email}, replacing
+	 * {@code ${name}} placeholders in the subject and header values with given values.
+	 * Unknown placeholders are left as they are. The encoded content of the template
+	 * is sent unchanged, so placeholders in the content are not replaced.
+	 *
+	 * @param template     {@link EmailTemplate} with the content.
+	 * @param email        {@link Email} with recipients and headers.
+	 * @param placeholders values of placeholders, may be {@code null}.
+	 * @return String representing message ID.
+	 */
+	public String sendMail(final EmailTemplate template, final Email email, final Map<String, ?> placeholders) {
+		try {
+			final MimeMessage msg = createMessage(template, email, placeholders);
+			sendMessage(msg, msg.getAllRecipients());
 			return msg.getMessageID();
 		} catch (final MessagingException msgexc) {
 			throw new MailException("Failed to send email: " + email, msgexc);
 		}
 	}
 
+	/**
+	 * Sends all emails over the current connection. Failure of one email does not
+	 * abort the batch: the mail transaction is reset with {@code RSET} and the next
+	 * email is sent over the same connection. The connection is reopened only
+	 * when the server dropped it.
+	 *
+	 * @param emails {@link Email}s to send.
+	 * @return array of {@link SendResult}s, in the same order as given emails.
+	 */
+	public SendResult[] sendMails(final Collection<Email> emails) {
+		final SendResult[] results = new SendResult[emails.size()];
+
+		int i = 0;
+		for (final Email email : emails) {
+			results[i++] = trySendMail(email);
+		}
+		return results;
+	}
+
+	/**
+	 * Prepares message and sends it. Unlike {@link #sendMail(Email)}, failures are
+	 * returned as part of the {@link SendResult} and the session is left ready
+	 * for the next email.
+	 *
+	 * @param email {@link Email} to send.
+	 * @return {@link SendResult} of the sending.
+	 */
+	protected SendResult trySendMail(final Email email) {
+		return trySendMail(email, null);
+	}
+
+	/**
+	 * Prepares message and sends it to given envelope recipients, that may be
+	 * just a part of the email recipients. Message headers are not changed.
+	 *
+	 * @param email      {@link Email} to send.
+	 * @param recipients envelope recipients; if {@code null}, all email recipients are used.
+	 * @return {@link SendResult} of the sending.
+	 */
+	protected SendResult trySendMail(final Email email, final Address[] recipients) {
+		return trySendMail(email, null, recipients);
+	}
+
+	/**
+	 * Sends already prepared message of the email to given envelope recipients.
+	 * The message is not modified, so it may be shared by many sessions.
+	 *
+	 * @param email       {@link Email} of the message.
+	 * @param preparedMsg prepared {@link MimeMessage}; if {@code null}, it is created from the email.
+	 * @param recipients  envelope recipients; if {@code null}, all message recipients are used.
+	 * @return {@link SendResult} of the sending.
+	 */
+	protected SendResult trySendMail(final Email email, final MimeMessage preparedMsg, final Address[] recipients) {
+		MimeMessage msg = preparedMsg;
+		Address[] envelopeRecipients = recipients;
+		try {
+			if (msg == null) {
+				msg = createMessage(email);
+			}
+			if (envelopeRecipients == null) {
+				envelopeRecipients = msg.getAllRecipients();
+			}
+			sendMessage(msg, envelopeRecipients);
+			return new SendResult(email, msg.getMessageID(), EmailAddress.of(envelopeRecipients), EmailAddress.EMPTY_ARRAY, null);
+		}
+		catch (final SendFailedException sfex) {
+			recoverTransaction();
+			final Address[] rejected = ArraysUtil.join(
+				valueOrEmptyArray(sfex.getValidUnsentAddresses()),
+				valueOrEmptyArray(sfex.getInvalidAddresses()));
+			return new SendResult(email,
+				resolveMessageId(msg),
+				EmailAddress.of(sfex.getValidSentAddresses()),
+				EmailAddress.of(rejected),
+				new MailException("Failed to send email: " + email, sfex));
+		}
+		catch (final MessagingException | MailException | IllegalStateException ex) {
+			recoverTransaction();
+			return new SendResult(email,
+				null,
+				EmailAddress.EMPTY_ARRAY,
+				resolveRecipients(email, envelopeRecipients),
+				ex instanceof MailException ? (MailException) ex : new MailException("Failed to send email: " + email, ex));
+		}
+	}
+
+	/**
+	 * Sends prepared {@link MimeMessage} to given recipients using the session {@link Transport}.
+	 *
+	 * @param msg        {@link MimeMessage} to send.
+	 * @param recipients envelope recipients.
+	 * @throws MessagingException if there is a failure.
+	 */
+	protected void sendMessage(final MimeMessage msg, final Address[] recipients) throws MessagingException {
+		if (sendThrottle == null) {
+			getService().sendMessage(msg, recipients);
+			return;
+		}
+
+		sendThrottle.acquire(relay);
+		int replyCode = -1;
+		try {
+			getService().sendMessage(msg, recipients);
+			replyCode = lastReplyCode(250);
+		} catch (final SMTPSendFailedException ssfex) {
+			replyCode = ssfex.getReturnCode();
+			throw ssfex;
+		} catch (final MessagingException mex) {
+			replyCode = lastReplyCode(-1);
+			throw mex;
+		} finally {
+			sendThrottle.release(relay, replyCode);
+		}
+	}
+
+	/**
+	 * Returns the last SMTP reply code, or the default value for non-SMTP transports.
+	 */
+	private int lastReplyCode(final int defaultReplyCode) {
+		final Transport transport = getService();
+		if (transport instanceof SMTPTransport) {
+			final int replyCode = ((SMTPTransport) transport).getLastReturnCode();
+			return replyCode > 0 ? replyCode : defaultReplyCode;
+		}
+		return defaultReplyCode;
+	}
+
+	/**
+	 * Resets the current mail transaction by issuing the SMTP {@code RSET} command.
+	 * Non-SMTP transports are only checked for connection.
+	 *
+	 * @return {@code true} if the server accepted the command and the session may be used again.
+	 */
+	boolean resetTransaction() {
+		final Transport transport = getService();
+		if (!(transport instanceof SMTPTransport)) {
+			return transport.isConnected();
+		}
+		try {
+			return ((SMTPTransport) transport).simpleCommand("RSET") == 250;
+		} catch (final MessagingException | IllegalStateException ignore) {
+			return false;
+		}
+	}
+
+	/**
+	 * Resets the mail transaction after a failure. If the connection was dropped,
+	 * it is reopened, so the session can be used for the next email.
+	 */
+	private void recoverTransaction() {
+		if (resetTransaction()) {
+			return;
+		}
+		try {
+			service.close();
+		} catch (final MessagingException ignore) {
+		}
+		try {
+			service.connect();
+		} catch (final MessagingException | IllegalStateException ignore) {
+			// next send reports the error
+		}
+	}
+
+	private static String resolveMessageId(final MimeMessage msg) {
+		if (msg == null) {
+			return null;
+		}
+		try {
+			return msg.getMessageID();
+		} catch (final MessagingException ignore) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns envelope recipients, or all email recipients when the message was not created.
+	 */
+	private static EmailAddress[] resolveRecipients(final Email email, final Address[] envelopeRecipients) {
+		if (envelopeRecipients != null) {
+			return EmailAddress.of(envelopeRecipients);
+		}
+		return ArraysUtil.join(email.to(), email.cc(), email.bcc());
+	}
+
+	private static Address[] valueOrEmptyArray(final Address[] addresses) {
+		return addresses == null ? new Address[0] : addresses;
+	}
+
 	// ---------------------------------------------------------------- adapter
 
 	/**
-	 * Creates new {@link MimeMessage} from an {@link Email}.
+	 * Creates new {@link MimeMessage} from an {@link Email}. The email is only read,
+	 * so there is no need to copy it.
 	 *
 	 * @param email {@link Email} to be created as a {@link MimeMessage}.
 	 * @return {@link MimeMessage} created from an {@link Email}.
 	 * @throws MessagingException if there is a failure
 	 */
 	protected MimeMessage createMessage(final Email email) throws MessagingException {
-		final Email clone = email.clone();
-
 		final MimeMessage newMsg = new MimeMessage(getSession());
 
-		setPeople(clone, newMsg);
-		setSubject(clone, newMsg);
-		setSentDate(clone, newMsg);
-		setHeaders(clone, newMsg);
-		addBodyData(clone, newMsg);
+		setPeople(email, newMsg);
+		setSubject(email, newMsg);
+		setSentDate(email, newMsg);
+		setHeaders(email, newMsg);
+		addBodyData(email, newMsg);
 		return newMsg;
 	}
 
+	/**
+	 * Creates new {@link MimeMessage} from an {@link EmailTemplate} and per-recipient {@link Email}.
+	 * Only the headers are set, the content is shared with the template.
+	 *
+	 * @param template {@link EmailTemplate} with the content.
+	 * @param email    {@link Email} with recipients and headers.
+	 * @return {@link MimeMessage} created from the template.
+	 * @throws MessagingException if there is a failure
+	 */
+	protected MimeMessage createMessage(final EmailTemplate template, final Email email) throws MessagingException {
+		return createMessage(template, email, null);
+	}
+
+	/**
+	 * Creates new {@link MimeMessage} from an {@link EmailTemplate} and per-recipient {@link Email},
+	 * replacing placeholders in the subject and header values. When the transport may convert
+	 * the content to 8-bit encoding, a regular copy of the message is returned, since the
+	 * pre-encoded content can not be converted.
+	 *
+	 * @param template     {@link EmailTemplate} with the content.
+	 * @param email        {@link Email} with recipients and headers.
+	 * @param placeholders values of placeholders, may be {@code null}.
+	 * @return {@link MimeMessage} created from the template.
+	 * @throws MessagingException if there is a failure
+	 * @throws MailException if neither the email nor the template has a sender
+	 * @see #sendMail(EmailTemplate, Email, Map)
+	 */
+	protected MimeMessage createMessage(final EmailTemplate template, final Email email, final Map<String, ?> placeholders) throws MessagingException {
+		final Email templateEmail = template.email();
+		final Function<String, String> resolver = placeholders == null ? Function.identity() :
+			StringTemplateParser.ofMap(placeholders).setReplaceMissingKey(false);
+
+		final MimeMessage newMsg = template.createMimeMessage(getSession());
+
+		final EmailAddress from = email.from() != null ? email.from() : templateEmail.from();
+		if (from == null) {
+			throw new MailException("Sender is not set, neither in the email nor in the template");
+		}
+		newMsg.setFrom(from.toInternetAddress());
+		final EmailAddress[] replyTo = email.replyTo().length != 0 ? email.replyTo() : templateEmail.replyTo();
+		newMsg.setReplyTo(EmailAddress.convert(replyTo));
+		setRecipients(email, newMsg);
+
+		final Email subjectEmail = email.subject() != null ? email : templateEmail;
+		if (subjectEmail.subject() != null) {
+			newMsg.setSubject(resolver.apply(subjectEmail.subject()), subjectEmail.subjectEncoding());
+		}
+		setSentDate(email, newMsg);
+		setHeaders(templateEmail, newMsg, resolver);
+		setHeaders(email, newMsg, resolver);
+		return allows8BitMime() ? new MimeMessage(newMsg) : newMsg;
+	}
+
+	/**
+	 * Returns {@code true} if the transport may convert the message to 8-bit encoding,
+	 * which modifies the message.
+	 */
+	boolean allows8BitMime() {
+		final Transport transport = getService();
+		final URLName urlName = transport != null ? transport.getURLName() : null;
+		final String protocol = urlName != null ? urlName.getProtocol() : SmtpServer.PROTOCOL_SMTP;
+		return Boolean.parseBoolean(getSession().getProperty("mail." + protocol + ".allow8bitmime"));
+	}
+
 	/**
 	 * Sets subject in msgToSet from subject in emailWithData.
 	 *
@@ -158,6 +471,18 @@ public class SendMailSession extends MailSession<Transport> {
 		}
 	}
 
+	/**
+	 * Sets headers in msgToSet with headers from emailWithData, resolving their values.
+	 */
+	private static void setHeaders(final Email emailWithData, final MimeMessage msgToSet, final Function<String, String> resolver) throws MessagingException {
+		final Map<String, String> headers = emailWithData.headers();
+		if (headers != null) {
+			for (final Map.Entry<String, String> entry : headers.entrySet()) {
+				msgToSet.setHeader(entry.getKey(), resolver.apply(entry.getValue()));
+			}
+		}
+	}
+
 	/**
 	 * Sets FROM, REPLY-TO and recipients.
 	 *
@@ -205,7 +530,7 @@ public class SendMailSession extends MailSession<Transport> {
 	 * @param msgToSet      {@link MimeMessage} to set data into.
 	 * @throws MessagingException if there is a failure.
 	 */
-	private void addBodyData(final Email emailWithData, final MimeMessage msgToSet) throws MessagingException {
+	void addBodyData(final Email emailWithData, final MimeMessage msgToSet) throws MessagingException {
 		final List<EmailMessage> messages = emailWithData.messages();
 
 		final int totalMessages = messages.size();
@@ -294,6 +619,10 @@ public class SendMailSession extends MailSession<Transport> {
 
 	/**
 	 * Creates attachment body part. Handles regular and inline attachments.
+	 * Content of the attachment is not read here: it is streamed from the {@link DataSource}
+	 * when the message is written to the transport. Attachments that are not in memory
+	 * are always {@code base64} encoded, so their content is not read one more time
+	 * just to detect the transfer encoding.
 	 *
 	 * @param attachment Body part {@link EmailAttachment}.
 	 * @return {@link MimeBodyPart} which represents body part attachment.
@@ -307,7 +636,11 @@ public class SendMailSession extends MailSession<Transport> {
 			part.setFileName(attachmentName);
 		}
 
-		part.setDataHandler(new DataHandler(attachment.getDataSource()));
+		final DataSource dataSource = attachment.getDataSource();
+		part.setDataHandler(new DataHandler(dataSource));
+		if (!(dataSource instanceof ByteArrayDataSource)) {
+			part.setHeader(CONTENT_TRANSFER_ENCODING, BASE64);
+		}
 
 		if (attachment.getContentId() != null) {
 			part.setContentID(StringPool.LEFT_CHEV + attachment.getContentId() + StringPool.RIGHT_CHEV);
@@ -0,0 +1,101 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.mail;
+
+/**
+ * Result of sending a single {@link Email} in a batch.
+ *
+ * @see SendMailSession#sendMails(java.util.Collection)
+ */
+public class SendResult {
+
+	private final Email email;
+	private final String messageId;
+	private final EmailAddress[] accepted;
+	private final EmailAddress[] rejected;
+	private final MailException exception;
+
+	protected SendResult(
+			final Email email,
+			final String messageId,
+			final EmailAddress[] accepted,
+			final EmailAddress[] rejected,
+			final MailException exception) {
+		this.email = email;
+		this.messageId = messageId;
+		this.accepted = accepted;
+		this.rejected = rejected;
+		this.exception = exception;
+	}
+
+	/**
+	 * Returns sent {@link Email}.
+	 */
+	public Email getEmail() {
+		return email;
+	}
+
+	/**
+	 * Returns message ID of the sent email or {@code null} if email was not sent.
+	 */
+	public String getMessageId() {
+		return messageId;
+	}
+
+	/**
+	 * Returns recipients accepted by the server.
+	 */
+	public EmailAddress[] getAccepted() {
+		return accepted;
+	}
+
+	/**
+	 * Returns recipients rejected by the server or recipients to whom email was not sent.
+	 */
+	public EmailAddress[] getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * Returns the exception if sending failed, even partially; otherwise {@code null}.
+	 */
+	public MailException getException() {
+		return exception;
+	}
+
+	/**
+	 * Returns {@code true} if email was sent to all recipients.
+	 */
+	public boolean isSuccess() {
+		return exception == null;
+	}
+
+	@Override
+	public String toString() {
+		return "SendResult{" + email + ", messageId='" + messageId + "', success=" + isSuccess() + '}';
+	}
+}
@@ -0,0 +1,53 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+/**
+ * Throttles sending of emails to a relay. Before each message is sent,
+ * {@link #acquire(String)} is called, and after the server responds,
+ * {@link #release(String, int)} is called with the SMTP reply code.
+ *
+ * @see RelayThrottle
+ * @see MailServer.Builder#throttle(SendThrottle)
+ */
+public interface SendThrottle {
+
+	/**
+	 * Blocks until a message may be sent to the relay.
+	 *
+	 * @param relay relay host name.
+	 * @throws MailException if sending is not allowed, e.g. on timeout.
+	 */
+	void acquire(String relay);
+
+	/**
+	 * Releases the relay after the message was sent or failed.
+	 *
+	 * @param relay     relay host name.
+	 * @param replyCode SMTP reply code of the relay, or {@code -1} when unknown.
+	 */
+	void release(String relay, int replyCode);
+}
@@ -0,0 +1,421 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of connected and authenticated {@link SendMailSession}s of a single {@link SmtpServer}.
+ * Borrowed sessions are already opened; closing them returns the connection back to the pool
+ * instead of closing the SMTP transport. This way the TCP, TLS and AUTH handshake is paid
+ * only once per connection and not once per sent email.
+ * <p>
+ * Idle connections are validated with {@code NOOP} when borrowed (or {@code RSET} when
+ * {@code mail.smtp.userset} property is set) and the mail transaction is reset with
+ * {@code RSET} when they are returned.
+ */
+public class SmtpConnectionPool implements AutoCloseable {
+
+	/**
+	 * Returns new pool builder for given {@link SmtpServer}.
+	 */
+	public static Builder create(final SmtpServer smtpServer) {
+		return new Builder(smtpServer);
+	}
+
+	private final SmtpServer smtpServer;
+	private final int minIdle;
+	private final int maxIdle;
+	private final int maxTotal;
+	private final long maxLifetime;
+	private final int maxMessagesPerConnection;
+	private final boolean validateOnBorrow;
+	private final long borrowTimeout;
+
+	private final LinkedBlockingDeque<PooledSession> idleSessions = new LinkedBlockingDeque<>();
+	private final Semaphore permits;
+	private final AtomicInteger activeCount = new AtomicInteger();
+	private volatile boolean closed;
+
+	protected SmtpConnectionPool(final Builder builder) {
+		this.smtpServer = builder.smtpServer;
+		this.minIdle = builder.minIdle;
+		this.maxIdle = builder.maxIdle;
+		this.maxTotal = builder.maxTotal;
+		this.maxLifetime = builder.maxLifetime;
+		this.maxMessagesPerConnection = builder.maxMessagesPerConnection;
+		this.validateOnBorrow = builder.validateOnBorrow;
+		this.borrowTimeout = builder.borrowTimeout;
+		this.permits = new Semaphore(maxTotal, true);
+	}
+
+	/**
+	 * Opens the pool by creating {@code minIdle} connections upfront.
+	 *
+	 * @return this
+	 */
+	public SmtpConnectionPool open() {
+		evict();
+		return this;
+	}
+
+	/**
+	 * Returns opened {@link SendMailSession}. Idle connection is reused if available,
+	 * otherwise a new connection is opened. When the maximum number of connections is
+	 * reached, waits for the connection to be returned. Session must be closed after
+	 * usage, so it gets returned to the pool.
+	 *
+	 * @return opened {@link SendMailSession}
+	 * @throws MailException if pool is closed, borrow timeout expires or connection fails to open.
+	 */
+	public SendMailSession borrowSession() {
+		ensureOpen();
+		acquirePermit();
+
+		try {
+			PooledSession pooledSession;
+			while ((pooledSession = idleSessions.pollFirst()) != null) {
+				if (isReusable(pooledSession) && (!validateOnBorrow || pooledSession.isConnected())) {
+					break;
+				}
+				destroy(pooledSession);
+			}
+			if (pooledSession == null) {
+				pooledSession = createPooledSession();
+			}
+			pooledSession.borrowed.set(true);
+			activeCount.incrementAndGet();
+			return pooledSession;
+		}
+		catch (final RuntimeException rex) {
+			permits.release();
+			throw rex;
+		}
+	}
+
+	/**
+	 * Returns session back to the pool. Invoked when borrowed session is closed.
+	 */
+	void release(final PooledSession pooledSession) {
+		if (!pooledSession.borrowed.compareAndSet(true, false)) {
+			return;
+		}
+		activeCount.decrementAndGet();
+
+		try {
+			if (closed
+				|| !isReusable(pooledSession)
+				|| idleSessions.size() >= maxIdle
+				|| !pooledSession.resetTransaction()) {
+				destroy(pooledSession);
+				return;
+			}
+			idleSessions.offerFirst(pooledSession);
+
+			if (closed && idleSessions.remove(pooledSession)) {
+				destroy(pooledSession);
+			}
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Closes idle connections that are expired or not connected anymore and
+	 * opens new connections until there are {@code minIdle} idle connections.
+	 * May be invoked periodically to keep the pool warm.
+	 */
+	public void evict() {
+		ensureOpen();
+
+		final int idleCount = idleSessions.size();
+		for (int i = 0; i < idleCount; i++) {
+			final PooledSession pooledSession = idleSessions.pollLast();
+			if (pooledSession == null) {
+				break;
+			}
+			if (isReusable(pooledSession) && pooledSession.isConnected()) {
+				idleSessions.offerFirst(pooledSession);
+			}
+			else {
+				destroy(pooledSession);
+			}
+		}
+
+		while (idleSessions.size() < minIdle && idleSessions.size() + activeCount.get() < maxTotal) {
+			idleSessions.offerLast(createPooledSession());
+		}
+	}
+
+	/**
+	 * Returns the {@link SmtpServer} of pooled connections.
+	 */
+	SmtpServer smtpServer() {
+		return smtpServer;
+	}
+
+	/**
+	 * Returns number of idle connections.
+	 */
+	public int getIdleCount() {
+		return idleSessions.size();
+	}
+
+	/**
+	 * Returns number of borrowed connections.
+	 */
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	/**
+	 * Closes all idle connections. Borrowed connections are closed once they are returned.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+
+		PooledSession pooledSession;
+		while ((pooledSession = idleSessions.pollFirst()) != null) {
+			destroy(pooledSession);
+		}
+	}
+
+	// ---------------------------------------------------------------- internal
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new MailException("SMTP connection pool is closed");
+		}
+	}
+
+	private void acquirePermit() {
+		try {
+			if (borrowTimeout <= 0) {
+				permits.acquire();
+			}
+			else if (!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+				throw new MailException("Timeout waiting for SMTP connection after " + borrowTimeout + "ms");
+			}
+		}
+		catch (final InterruptedException iex) {
+			Thread.currentThread().interrupt();
+			throw new MailException("Interrupted while waiting for SMTP connection", iex);
+		}
+	}
+
+	private PooledSession createPooledSession() {
+		final SendMailSession sendMailSession = smtpServer.createSession();
+		final PooledSession pooledSession = new PooledSession(this, sendMailSession.getSession(), sendMailSession.getService());
+		pooledSession.setThrottle(sendMailSession.sendThrottle, sendMailSession.relay);
+		pooledSession.open();
+		return pooledSession;
+	}
+
+	private boolean isReusable(final PooledSession pooledSession) {
+		if (maxLifetime > 0 && System.currentTimeMillis() - pooledSession.createdAt >= maxLifetime) {
+			return false;
+		}
+		return maxMessagesPerConnection <= 0 || pooledSession.sentCount < maxMessagesPerConnection;
+	}
+
+	private static void destroy(final PooledSession pooledSession) {
+		try {
+			pooledSession.closeConnection();
+		}
+		catch (final MailException ignore) {
+		}
+	}
+
+	// ---------------------------------------------------------------- pooled session
+
+	/**
+	 * {@link SendMailSession} that returns its connection to the pool on {@link #close()}.
+	 */
+	static class PooledSession extends SendMailSession {
+
+		private final SmtpConnectionPool pool;
+		private final long createdAt = System.currentTimeMillis();
+		private final AtomicBoolean borrowed = new AtomicBoolean();
+		private volatile int sentCount;
+		private volatile int recipientCount;
+
+		PooledSession(final SmtpConnectionPool pool, final Session session, final Transport transport) {
+			super(session, transport);
+			this.pool = pool;
+		}
+
+		/**
+		 * Opens the connection only if not already opened.
+		 */
+		@Override
+		public void open() {
+			if (!service.isConnected()) {
+				super.open();
+			}
+		}
+
+		@Override
+		protected void sendMessage(final MimeMessage msg, final Address[] recipients) throws MessagingException {
+			try {
+				super.sendMessage(msg, recipients);
+			}
+			finally {
+				sentCount++;
+				recipientCount += recipients.length;
+			}
+		}
+
+		/**
+		 * Returns the number of envelope recipients sent over this connection.
+		 */
+		int recipientCount() {
+			return recipientCount;
+		}
+
+		/**
+		 * Returns the session to the pool.
+		 */
+		@Override
+		public void close() {
+			pool.release(this);
+		}
+
+		/**
+		 * Closes the underlying connection.
+		 */
+		void closeConnection() {
+			super.close();
+		}
+	}
+
+	// ---------------------------------------------------------------- builder
+
+	/**
+	 * Builder of {@link SmtpConnectionPool}.
+	 */
+	public static class Builder {
+		private final SmtpServer smtpServer;
+		private int minIdle = 0;
+		private int maxIdle = 8;
+		private int maxTotal = 8;
+		private long maxLifetime = 0;
+		private int maxMessagesPerConnection = 0;
+		private boolean validateOnBorrow = true;
+		private long borrowTimeout = 0;
+
+		protected Builder(final SmtpServer smtpServer) {
+			Objects.requireNonNull(smtpServer, "SMTP server cannot be null");
+			this.smtpServer = smtpServer;
+		}
+
+		/**
+		 * Sets minimal number of idle connections opened by {@link SmtpConnectionPool#open()}
+		 * and {@link SmtpConnectionPool#evict()}. By default, this is {@code 0}.
+		 */
+		public Builder minIdle(final int minIdle) {
+			this.minIdle = minIdle;
+			return this;
+		}
+
+		/**
+		 * Sets maximal number of idle connections. Returned connections over
+		 * this limit are closed. By default, this is {@code 8}.
+		 */
+		public Builder maxIdle(final int maxIdle) {
+			this.maxIdle = maxIdle;
+			return this;
+		}
+
+		/**
+		 * Sets maximal number of opened connections, both idle and borrowed.
+		 * By default, this is {@code 8}.
+		 */
+		public Builder maxTotal(final int maxTotal) {
+			this.maxTotal = maxTotal;
+			return this;
+		}
+
+		/**
+		 * Sets maximal connection lifetime in milliseconds. Older connections are closed
+		 * instead of being reused. By default, this is {@code 0}, i.e. unlimited.
+		 */
+		public Builder maxLifetime(final long maxLifetime) {
+			this.maxLifetime = maxLifetime;
+			return this;
+		}
+
+		/**
+		 * Sets maximal number of messages sent over a single connection.
+		 * By default, this is {@code 0}, i.e. unlimited.
+		 */
+		public Builder maxMessagesPerConnection(final int maxMessagesPerConnection) {
+			this.maxMessagesPerConnection = maxMessagesPerConnection;
+			return this;
+		}
+
+		/**
+		 * Defines if idle connections are validated before they are borrowed.
+		 * By default, this is {@code true}.
+		 */
+		public Builder validateOnBorrow(final boolean validateOnBorrow) {
+			this.validateOnBorrow = validateOnBorrow;
+			return this;
+		}
+
+		/**
+		 * Sets how long to wait for a connection, in milliseconds, when all connections
+		 * are borrowed. By default, this is {@code 0}, i.e. wait until one is returned.
+		 */
+		public Builder borrowTimeout(final long borrowTimeout) {
+			this.borrowTimeout = borrowTimeout;
+			return this;
+		}
+
+		/**
+		 * Creates new {@link SmtpConnectionPool}.
+		 */
+		public SmtpConnectionPool build() {
+			if (maxTotal <= 0) {
+				throw new MailException("Maximal number of connections must be positive");
+			}
+			return new SmtpConnectionPool(this);
+		}
+	}
+}
@@ -28,6 +28,7 @@ package jodd.mail;
 import jakarta.mail.NoSuchProviderException;
 import jakarta.mail.Session;
 import jakarta.mail.Transport;
+import jakarta.mail.URLName;
 
 import java.util.Properties;
 
@@ -76,6 +77,10 @@ public class SmtpServer extends MailServer<SendMailSession> {
 			props.put(MAIL_SMTP_WRITETIMEOUT, timeoutValue);
 		}
 
+		if (chunkSize > 0) {
+			props.setProperty(MAIL_SMTP_CHUNKSIZE, String.valueOf(chunkSize));
+		}
+
 		return props;
 	}
 
@@ -89,11 +94,15 @@ public class SmtpServer extends MailServer<SendMailSession> {
 		final Session session = Session.getInstance(createSessionProperties(), authenticator);
 		final Transport mailTransport;
 		try {
-			mailTransport = getTransport(session);
+			mailTransport = pipelining ? getPipeliningTransport(session) : getTransport(session);
 		} catch (final NoSuchProviderException nspex) {
 			throw new MailException(nspex);
 		}
-		return new SendMailSession(session, mailTransport);
+		final SendMailSession sendMailSession = new SendMailSession(session, mailTransport);
+		if (sendThrottle != null) {
+			sendMailSession.setThrottle(sendThrottle, host);
+		}
+		return sendMailSession;
 	}
 
 	/**
@@ -107,4 +116,14 @@ public class SmtpServer extends MailServer<SendMailSession> {
 		return session.getTransport(PROTOCOL_SMTP);
 	}
 
+	/**
+	 * Get the {@link PipeliningSmtpTransport} for {@link Session}.
+	 *
+	 * @param session The {@link SendMailSession}.
+	 * @return SMTP {@link Transport} that pipelines commands.
+	 */
+	protected static Transport getPipeliningTransport(final Session session) {
+		return new PipeliningSmtpTransport(session, new URLName(PROTOCOL_SMTP, null, -1, null, null, null));
+	}
+
 }
@@ -0,0 +1,89 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import java.io.File;
+
+/**
+ * Thresholds that decide where the content of a received attachment is kept when
+ * there is no attachment storage: small attachments on the heap, medium ones in
+ * direct (off-heap) buffers and large ones in temporary files.
+ *
+ * @see SpillingDataSource
+ * @see MailServer.Builder#spillAttachments(int, int, File)
+ */
+public class SpillThresholds {
+
+	/**
+	 * Maximal threshold, so the content of a threshold size and one more byte still fits in a buffer.
+	 */
+	public static final int MAX_THRESHOLD = Integer.MAX_VALUE - 8;
+
+	private final int heapThreshold;
+	private final int offHeapThreshold;
+	private final File spillFolder;
+
+	/**
+	 * Creates thresholds.
+	 *
+	 * @param heapThreshold    maximal size of attachment kept on the heap, in bytes; at most {@link #MAX_THRESHOLD}.
+	 * @param offHeapThreshold maximal size of attachment kept in a direct buffer, in bytes;
+	 *                         when not larger than the heap threshold, direct buffers are not used.
+	 * @param spillFolder      folder of temporary files, or {@code null} for the default temporary folder.
+	 */
+	public SpillThresholds(final int heapThreshold, final int offHeapThreshold, final File spillFolder) {
+		if (heapThreshold < 0 || offHeapThreshold < 0) {
+			throw new MailException("Spill thresholds must not be negative");
+		}
+		if (heapThreshold > MAX_THRESHOLD || offHeapThreshold > MAX_THRESHOLD) {
+			throw new MailException("Spill thresholds must not be larger than " + MAX_THRESHOLD);
+		}
+		this.heapThreshold = heapThreshold;
+		this.offHeapThreshold = offHeapThreshold;
+		this.spillFolder = spillFolder;
+	}
+
+	/**
+	 * Returns maximal size of attachment kept on the heap.
+	 */
+	public int heapThreshold() {
+		return heapThreshold;
+	}
+
+	/**
+	 * Returns maximal size of attachment kept in a direct buffer.
+	 */
+	public int offHeapThreshold() {
+		return offHeapThreshold;
+	}
+
+	/**
+	 * Returns folder of temporary files, or {@code null} for the default temporary folder.
+	 */
+	public File spillFolder() {
+		return spillFolder;
+	}
+}
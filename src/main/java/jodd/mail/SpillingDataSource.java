@@ -0,0 +1,229 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.activation.DataSource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only {@link DataSource} that keeps its content on the heap, in a direct
+ * (off-heap) buffer or in a temporary file, depending on the content size and
+ * given {@link SpillThresholds}. The content is read only once and is not copied
+ * between growing buffers: the heap holds at most the heap threshold of it, and
+ * a single direct buffer of the off-heap threshold size is allocated for content
+ * larger than the heap threshold.
+ * <p>
+ * Temporary files are not deleted automatically; call {@link #release()}, or
+ * {@link ReceivedEmail#release()} for all attachments of an email, when the content
+ * is no longer needed.
+ */
+public class SpillingDataSource implements DataSource {
+
+	private static final int INITIAL_HEAP_CAPACITY = 8192;
+	private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Reads the whole input stream into a new data source.
+	 *
+	 * @param inputStream content to read; it is not closed.
+	 * @param contentType content type of the data source.
+	 * @param thresholds  decide where the content is kept.
+	 */
+	public static SpillingDataSource read(final InputStream inputStream, final String contentType, final SpillThresholds thresholds) throws IOException {
+		final int heapThreshold = thresholds.heapThreshold();
+
+		// heap holds at most heap threshold + 1 bytes, to find out if the content is larger
+		byte[] heap = new byte[Math.min(heapThreshold + 1, INITIAL_HEAP_CAPACITY)];
+		int size = 0;
+		int read;
+		while (size < heap.length && (read = inputStream.read(heap, size, heap.length - size)) != -1) {
+			size += read;
+			if (size == heap.length && size <= heapThreshold) {
+				heap = Arrays.copyOf(heap, (int) Math.min(heapThreshold + 1L, heap.length * 2L));
+			}
+		}
+		if (size <= heapThreshold) {
+			return new SpillingDataSource(contentType, ByteBuffer.wrap(heap, 0, size), null);
+		}
+
+		final ReadableByteChannel source = Channels.newChannel(inputStream);
+		ByteBuffer head = ByteBuffer.wrap(heap, 0, size);
+
+		final int offHeapThreshold = thresholds.offHeapThreshold();
+		if (offHeapThreshold > heapThreshold) {
+			final ByteBuffer direct = ByteBuffer.allocateDirect(offHeapThreshold + 1);
+			direct.put(head);
+			// the heap content is copied, so it is not kept while the rest is read
+			heap = null;
+			head = direct;
+
+			while (direct.hasRemaining()) {
+				if (source.read(direct) == -1) {
+					direct.flip();
+					return new SpillingDataSource(contentType, direct, null);
+				}
+			}
+			direct.flip();
+		}
+
+		final File spillFolder = thresholds.spillFolder();
+		final Path file = spillFolder != null
+			? Files.createTempFile(spillFolder.toPath(), "jodd-mail-", ".att")
+			: Files.createTempFile("jodd-mail-", ".att");
+
+		try (final FileChannel target = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			while (head.hasRemaining()) {
+				target.write(head);
+			}
+			long position = target.position();
+			long transferred;
+			while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+				position += transferred;
+			}
+		} catch (final IOException | RuntimeException ex) {
+			Files.deleteIfExists(file);
+			throw ex;
+		}
+		return new SpillingDataSource(contentType, null, file.toFile());
+	}
+
+	private final String contentType;
+	private final ByteBuffer buffer;
+	private final File file;
+
+	protected SpillingDataSource(final String contentType, final ByteBuffer buffer, final File file) {
+		this.contentType = contentType;
+		this.buffer = buffer;
+		this.file = file;
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		if (buffer != null) {
+			return new ByteBufferInputStream(buffer.duplicate());
+		}
+		return new FileInputStream(file);
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		throw new IOException("Data source is read-only");
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public String getName() {
+		return "";
+	}
+
+	/**
+	 * Returns the size of the content.
+	 */
+	public long size() {
+		if (buffer != null) {
+			return buffer.remaining();
+		}
+		return file.length();
+	}
+
+	/**
+	 * Returns read-only view of the content kept in memory, on the heap or off-heap,
+	 * or {@code null} if the content is spilled to a file.
+	 */
+	public ByteBuffer getBuffer() {
+		if (buffer != null) {
+			return buffer.asReadOnlyBuffer();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the temporary file with the content, or {@code null} if the content is kept in memory.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Deletes the temporary file, if the content was spilled to it.
+	 *
+	 * @return {@code true} if the file was deleted.
+	 */
+	public boolean release() throws IOException {
+		return file != null && Files.deleteIfExists(file.toPath());
+	}
+
+	/**
+	 * {@link InputStream} over a {@link ByteBuffer}.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
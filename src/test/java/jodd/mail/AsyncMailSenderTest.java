@@ -0,0 +1,158 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.mail;
+
+import jodd.mail.fixture.GreenMailServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncMailSenderTest {
+
+	private GreenMailServer greenMail;
+	private SmtpServer smtpServer;
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+		smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testSendAsync() throws Exception {
+		final int total = 20;
+		final List<CompletableFuture<String>> futures = new ArrayList<>();
+
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).maxTotal(4).build()) {
+			try (final AsyncMailSender sender = AsyncMailSender.create(pool).workers(4).build()) {
+				for (int i = 0; i < total; i++) {
+					futures.add(sender.sendAsync(email(i)));
+				}
+				for (final CompletableFuture<String> future : futures) {
+					assertNotNull(future.get());
+				}
+			}
+		}
+
+		assertTrue(greenMail.waitForIncomingEmail(5000, total));
+		assertEquals(total, greenMail.receivedCount());
+	}
+
+	@Test
+	void testRejectWhenQueueIsFull() throws Exception {
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).maxTotal(1).build()) {
+			// keep the only connection, so the worker waits
+			final SendMailSession blocking = pool.borrowSession();
+
+			final CompletableFuture<String> first;
+			final CompletableFuture<String> second;
+			final CompletableFuture<String> third;
+
+			try (final AsyncMailSender sender = AsyncMailSender.create(pool).workers(1).queueCapacity(1).build()) {
+				first = sender.sendAsync(email(1));
+				second = sender.sendAsync(email(2));
+				third = sender.sendAsync(email(3));
+
+				assertTrue(third.isCompletedExceptionally());
+				assertFalse(first.isDone());
+				assertFalse(second.isDone());
+
+				final ExecutionException eex = assertThrows(ExecutionException.class, third::get);
+				assertTrue(eex.getCause() instanceof MailException);
+
+				blocking.close();
+			}
+
+			// close drains the queue
+			assertNotNull(first.get());
+			assertNotNull(second.get());
+		}
+
+		assertTrue(greenMail.waitForIncomingEmail(5000, 2));
+	}
+
+	@Test
+	void testCallerRuns() {
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).maxTotal(1).borrowTimeout(1000).build()) {
+			final SendMailSession blocking = pool.borrowSession();
+
+			try (final AsyncMailSender sender = AsyncMailSender.create(pool)
+				.workers(1)
+				.queueCapacity(1)
+				.overflowPolicy(AsyncMailSender.OverflowPolicy.CALLER_RUNS)
+				.build()) {
+
+				sender.sendAsync(email(1));
+				sender.sendAsync(email(2));
+
+				// executed in this thread, waiting for the connection
+				final CompletableFuture<String> third = sender.sendAsync(email(3));
+				assertTrue(third.isCompletedExceptionally());
+
+				blocking.close();
+			}
+		}
+	}
+
+	@Test
+	void testClosedSender() {
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).build()) {
+			final AsyncMailSender sender = AsyncMailSender.create(pool).build();
+			sender.close();
+
+			final CompletableFuture<String> future = sender.sendAsync(email(1));
+			assertTrue(future.isCompletedExceptionally());
+		}
+	}
+
+	private static Email email(final int index) {
+		return Email.create()
+			.from("Jodd", "jodd@use.me")
+			.to(GreenMailServer.GREEN_MAIL_COM)
+			.subject("Async " + index)
+			.textMessage("Hello " + index);
+	}
+}
@@ -0,0 +1,150 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AttachmentInspectorTest {
+
+	private static final byte[] PDF = "%PDF-1.4 dummy".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0};
+
+	@TempDir
+	File storage;
+
+	@Test
+	void testDetectContentType() {
+		assertEquals("application/pdf", inspect(PDF).detectContentType());
+		assertEquals("image/png", inspect(PNG).detectContentType());
+		assertEquals("image/jpeg", inspect(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}).detectContentType());
+		assertEquals("application/zip", inspect(new byte[] {'P', 'K', 3, 4, 0}).detectContentType());
+		assertNull(inspect(new byte[] {1, 2, 3}).detectContentType());
+	}
+
+	@Test
+	void testReceivedAttachmentMetadata() throws MessagingException, IOException, NoSuchAlgorithmException {
+		final MimeMessage message = createMessage(PDF, PNG);
+
+		final ReceivedEmail email = new ReceivedEmail(message, false, new ReceiveSettings(null, null, "SHA-256"));
+
+		final EmailAttachment<?> pdf = email.attachments().get(0);
+		assertEquals(PDF.length, pdf.getSize());
+		assertEquals("SHA-256", pdf.getDigestAlgorithm());
+		assertEquals(sha256(PDF), pdf.getDigest());
+		assertEquals("application/pdf", pdf.getDetectedContentType());
+
+		final EmailAttachment<?> png = email.attachments().get(1);
+		assertEquals(PNG.length, png.getSize());
+		assertEquals(sha256(PNG), png.getDigest());
+		assertEquals("image/png", png.getDetectedContentType());
+	}
+
+	@Test
+	void testStoredAttachmentMetadata() throws MessagingException, IOException {
+		final MimeMessage message = createMessage(PDF);
+
+		final ReceivedEmail email = new ReceivedEmail(
+			message, false, new ReceiveSettings(new FileAttachmentStore(storage), null, "MD5"));
+
+		final EmailAttachment<?> pdf = email.attachments().get(0);
+		assertEquals(PDF.length, pdf.getSize());
+		assertEquals("MD5", pdf.getDigestAlgorithm());
+		assertEquals(32, pdf.getDigest().length());
+		assertEquals("application/pdf", pdf.getDetectedContentType());
+	}
+
+	@Test
+	void testNoDigestByDefault() throws MessagingException, IOException {
+		final ReceivedEmail email = new ReceivedEmail(createMessage(PNG), false, ReceiveSettings.DEFAULT);
+
+		final EmailAttachment<?> png = email.attachments().get(0);
+		assertNull(png.getDigest());
+		assertEquals(PNG.length, png.getSize());
+		assertEquals("image/png", png.getDetectedContentType());
+	}
+
+	@Test
+	void testUnknownDigestAlgorithm() {
+		assertThrows(MailException.class, () -> MailServer.create().attachmentDigest("NO-SUCH-DIGEST"));
+	}
+
+	private static AttachmentInspector inspect(final byte[] content) {
+		final AttachmentInspector inspector = new AttachmentInspector(null);
+		inspector.update(content, 0, content.length);
+		return inspector;
+	}
+
+	private static String sha256(final byte[] content) throws NoSuchAlgorithmException {
+		final StringBuilder hex = new StringBuilder();
+		for (final byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	private static MimeMessage createMessage(final byte[]... attachments) throws MessagingException, IOException {
+		final Session session = Session.getInstance(new Properties());
+		final MimeMultipart multipart = new MimeMultipart();
+		final MimeBodyPart text = new MimeBodyPart();
+		text.setText("Hello");
+		multipart.addBodyPart(text);
+		for (int i = 0; i < attachments.length; i++) {
+			final MimeBodyPart attachment = new MimeBodyPart();
+			attachment.setDataHandler(new DataHandler(new ByteArrayDataSource(attachments[i], "application/octet-stream")));
+			attachment.setFileName("file" + i + ".bin");
+			multipart.addBodyPart(attachment);
+		}
+
+		final MimeMessage message = new MimeMessage(session);
+		message.setContent(multipart);
+		message.saveChanges();
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+		return new MimeMessage(session, new ByteArrayInputStream(out.toByteArray()));
+	}
+}
@@ -205,4 +205,55 @@ class AttachmentStorageTest {
 		FileUtil.deleteDir(attFolder);
 	}
 
+	@Test
+	@EnabledOnOs(value = {OS.AIX, OS.LINUX, OS.MAC, OS.SOLARIS})
+	void testLargeAttachmentStreamedToStorage() throws Exception {
+		final byte[] content = new byte[3 * 1024 * 1024 + 17];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) (i * 31);
+		}
+
+		final SmtpServer smtpServer = MailServer.create()
+			.host(LOCALHOST)
+			.port(3025)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			session.sendMail(Email.create()
+				.subject("Large")
+				.from("jodd@use.me")
+				.to(GREEN_MAIL_COM)
+				.textMessage("Hello")
+				.attachment(EmailAttachment.with().name("large.bin").content(content, "application/octet-stream")));
+		}
+
+		final File attFolder = FileUtil.createTempDirectory("jodd", "tt");
+
+		final ImapServer imapServer = MailServer.create()
+			.host(LOCALHOST)
+			.port(3143)
+			.auth(GREEN, PWD)
+			.fetchSize(64 * 1024)
+			.storeAttachmentsIn(attFolder)
+			.buildImapMailServer();
+
+		final ReceivedEmail[] receivedEmails;
+		try (final ReceiveMailSession session = imapServer.createSession()) {
+			session.open();
+			receivedEmails = session.receiveEmail();
+		}
+
+		assertEquals(1, receivedEmails.length);
+		final EmailAttachment<?> attachment = receivedEmails[0].attachments().get(0);
+		assertEquals("large.bin", attachment.getName());
+		assertEquals(content.length, attachment.getSize());
+
+		final File[] allFiles = attFolder.listFiles();
+		assertEquals(1, allFiles.length);
+		assertArrayEquals(content, FileUtil.readBytes(allFiles[0]));
+
+		FileUtil.deleteDir(attFolder);
+	}
+
 }
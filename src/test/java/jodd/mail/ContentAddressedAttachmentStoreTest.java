@@ -0,0 +1,162 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.FileDataSource;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import jodd.io.FileUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentAddressedAttachmentStoreTest {
+
+	private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+	@TempDir
+	File root;
+
+	@Test
+	void testSameContentStoredOnce() throws IOException {
+		final ContentAddressedAttachmentStore store = new ContentAddressedAttachmentStore(root);
+
+		final File file1 = store.store("one-1", bytes("abc"));
+		final File file2 = store.store("two-1", bytes("abc"));
+		final File other = store.store("one-2", bytes("abcd"));
+
+		assertEquals(file1, file2);
+		assertNotEquals(file1, other);
+		assertEquals(ABC_SHA256, file1.getName());
+		assertEquals(new File(new File(new File(root, "ba"), "78"), ABC_SHA256), file1);
+		assertArrayEquals("abc".getBytes(StandardCharsets.US_ASCII), FileUtil.readBytes(file1));
+
+		assertEquals(2, store.references(file1));
+		assertEquals(1, store.references(other));
+	}
+
+	@Test
+	void testLargeContent() throws IOException {
+		final ContentAddressedAttachmentStore store = new ContentAddressedAttachmentStore(root, 16);
+		final byte[] content = new byte[100 * 1024];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) (i % 251);
+		}
+
+		final File file1 = store.store("one-1", new ByteArrayInputStream(content));
+		final File file2 = store.store("two-1", new ByteArrayInputStream(content));
+
+		assertEquals(file1, file2);
+		assertArrayEquals(content, FileUtil.readBytes(file1));
+		assertEquals(2, store.references(file1));
+
+		// only shard folders, no temporary files
+		final File[] rootFiles = root.listFiles();
+		assertEquals(1, rootFiles.length);
+		assertTrue(rootFiles[0].isDirectory());
+	}
+
+	@Test
+	void testRelease() throws IOException {
+		final ContentAddressedAttachmentStore store = new ContentAddressedAttachmentStore(root);
+
+		final File file = store.store("one-1", bytes("abc"));
+		store.store("two-1", bytes("abc"));
+
+		assertFalse(store.release(file));
+		assertTrue(file.exists());
+		assertEquals(1, store.references(file));
+
+		assertTrue(store.release(file));
+		assertFalse(file.exists());
+		assertEquals(0, store.references(file));
+
+		assertThrows(MailException.class, () -> store.release(new File(root, "foo")));
+	}
+
+	@Test
+	void testReceivedEmailsShareAttachment() throws MessagingException, IOException {
+		final ContentAddressedAttachmentStore store = new ContentAddressedAttachmentStore(root);
+		final Session session = Session.getInstance(new Properties());
+
+		final ReceivedEmail email1 = new ReceivedEmail(createMessage(session, "1"), false, new ReceiveSettings(store, null, null));
+		final ReceivedEmail email2 = new ReceivedEmail(createMessage(session, "2"), false, new ReceiveSettings(store, null, null));
+
+		final File file1 = ((FileDataSource) email1.attachments().get(0).getDataSource()).getFile();
+		final File file2 = ((FileDataSource) email2.attachments().get(0).getDataSource()).getFile();
+
+		assertEquals(file1, file2);
+		assertEquals(2, store.references(file1));
+		assertEquals("disclaimer.pdf", email1.attachments().get(0).getName());
+		assertEquals(12, email2.attachments().get(0).getSize());
+		assertArrayEquals("same content".getBytes(StandardCharsets.US_ASCII), email2.attachments().get(0).toByteArray());
+
+
+		// releasing emails releases the shared content
+		email1.release();
+		assertEquals(1, store.references(file1));
+		email2.release();
+		assertFalse(file1.exists());
+	}
+
+	private static MimeMessage createMessage(final Session session, final String text) throws MessagingException, IOException {
+		final MimeBodyPart textPart = new MimeBodyPart();
+		textPart.setText(text);
+		final MimeBodyPart attachment = new MimeBodyPart();
+		attachment.setDataHandler(new DataHandler(new ByteArrayDataSource("same content".getBytes(StandardCharsets.US_ASCII), "application/pdf")));
+		attachment.setFileName("disclaimer.pdf");
+
+		final MimeMessage message = new MimeMessage(session);
+		message.setContent(new MimeMultipart(textPart, attachment));
+		message.saveChanges();
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+		return new MimeMessage(session, new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	private static ByteArrayInputStream bytes(final String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII));
+	}
+}
@@ -0,0 +1,118 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentLimitsTest {
+
+	private final Session session = Session.getInstance(new Properties());
+
+	@Test
+	void testTruncatedTextKeepsMalformedBytes() throws MessagingException {
+		// 'a', 'b', malformed byte, 'c', 'd', then 'č' cut in the half
+		final byte[] body = {'a', 'b', (byte) 0xFF, 'c', 'd', (byte) 0xC4, (byte) 0x8D, 'e'};
+
+		final ReceivedEmail email = receive("UTF-8", body, 6);
+
+		assertTrue(email.isTruncated());
+		assertEquals("ab\uFFFDcd", email.messages().get(0).getContent());
+	}
+
+	@Test
+	void testUnknownCharset() throws MessagingException {
+		final byte[] body = "Hello Jodd".getBytes(StandardCharsets.US_ASCII);
+
+		final ReceivedEmail unknown = receive("x-jodd-unknown", body, 5);
+		assertTrue(unknown.isTruncated());
+		assertEquals("Hello", unknown.messages().get(0).getContent());
+
+		final ReceivedEmail illegal = receive("not a charset!", body, 100);
+		assertFalse(illegal.isTruncated());
+		assertEquals("Hello Jodd", illegal.messages().get(0).getContent());
+	}
+
+	@Test
+	void testTruncatedAttachedMessage() throws MessagingException {
+		final String eml =
+			"From: jodd@use.me\r\n" +
+			"Subject: Forward\r\n" +
+			"MIME-Version: 1.0\r\n" +
+			"Content-Type: multipart/mixed; boundary=\"b1\"\r\n" +
+			"\r\n" +
+			"--b1\r\n" +
+			"Content-Type: text/plain\r\n" +
+			"\r\n" +
+			"See\r\n" +
+			"--b1\r\n" +
+			"Content-Type: message/rfc822\r\n" +
+			"\r\n" +
+			"From: other@use.me\r\n" +
+			"Subject: Original\r\n" +
+			"Content-Type: text/plain\r\n" +
+			"\r\n" +
+			"Long original text\r\n" +
+			"--b1--\r\n";
+
+		final MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(eml.getBytes(StandardCharsets.US_ASCII)));
+		final ReceivedEmail email = new ReceivedEmail(message, false, ReceiveSettings.DEFAULT.withContentLimits(new ContentLimits(8, 0)));
+
+		assertEquals("See", email.messages().get(0).getContent());
+		final ReceivedEmail attached = email.attachedMessages().get(0);
+		assertTrue(attached.isTruncated());
+		assertEquals("Long ori", attached.messages().get(0).getContent());
+		// outer email tells that the content was cut
+		assertTrue(email.isTruncated());
+	}
+
+	private ReceivedEmail receive(final String charset, final byte[] body, final int maxTextSize) throws MessagingException {
+		final ByteArrayOutputStream eml = new ByteArrayOutputStream();
+		final String headers =
+			"From: jodd@use.me\r\n" +
+			"Subject: Limits\r\n" +
+			"MIME-Version: 1.0\r\n" +
+			"Content-Type: text/plain; charset=\"" + charset + "\"\r\n" +
+			"Content-Transfer-Encoding: 8bit\r\n" +
+			"\r\n";
+		eml.write(headers.getBytes(StandardCharsets.US_ASCII), 0, headers.length());
+		eml.write(body, 0, body.length);
+
+		final MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(eml.toByteArray()));
+		return new ReceivedEmail(message, false, ReceiveSettings.DEFAULT.withContentLimits(new ContentLimits(maxTextSize, 0)));
+	}
+}
@@ -0,0 +1,120 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jodd.io.FileUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailAttachmentTest {
+
+	private static final byte[] CONTENT = "Jodd attachment content".getBytes();
+
+	@TempDir
+	File tempDir;
+
+	@Test
+	void testFileAttachmentAsMappedBuffer() throws IOException {
+		final EmailAttachment<?> attachment = fileAttachment();
+
+		final ByteBuffer buffer = attachment.toByteBuffer();
+
+		assertTrue(buffer instanceof MappedByteBuffer);
+		assertTrue(buffer.isReadOnly());
+		assertArrayEquals(CONTENT, bytesOf(buffer));
+	}
+
+	@Test
+	void testByteArrayAttachmentAsBuffer() {
+		final EmailAttachment<?> attachment = EmailAttachment.with().content(CONTENT).buildByteArrayDataSource();
+
+		final ByteBuffer buffer = attachment.toByteBuffer();
+
+		assertFalse(buffer instanceof MappedByteBuffer);
+		assertTrue(buffer.isReadOnly());
+		assertArrayEquals(CONTENT, bytesOf(buffer));
+	}
+
+	@Test
+	void testTransferTo() throws IOException {
+		final EmailAttachment<?> fileAttachment = fileAttachment();
+		final EmailAttachment<?> bytesAttachment = EmailAttachment.with().content(CONTENT).buildByteArrayDataSource();
+
+		for (final EmailAttachment<?> attachment : new EmailAttachment<?>[] {fileAttachment, bytesAttachment}) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final WritableByteChannel channel = Channels.newChannel(out);
+
+			assertEquals(CONTENT.length, attachment.transferTo(channel));
+			assertArrayEquals(CONTENT, out.toByteArray());
+		}
+	}
+
+	@Test
+	void testToByteArray() throws IOException {
+		assertArrayEquals(CONTENT, fileAttachment().toByteArray());
+		assertArrayEquals(CONTENT, EmailAttachment.with().content(CONTENT).buildByteArrayDataSource().toByteArray());
+
+		for (final int size : new int[] {0, 4, CONTENT.length, CONTENT.length + 10}) {
+			final EmailAttachment<?> attachment = EmailAttachment.with().content(CONTENT).buildByteArrayDataSource().setSize(size);
+			assertArrayEquals(CONTENT, attachment.toByteArray());
+		}
+	}
+
+	@Test
+	void testWriteToFile() throws IOException {
+		final File destination = new File(tempDir, "copy.bin");
+		FileUtil.writeString(destination, "previous, longer content of the file");
+
+		fileAttachment().writeToFile(destination);
+
+		assertArrayEquals(CONTENT, FileUtil.readBytes(destination));
+	}
+
+	private EmailAttachment<?> fileAttachment() throws IOException {
+		final File file = new File(tempDir, "attachment.bin");
+		FileUtil.writeBytes(file, CONTENT);
+		return EmailAttachment.with().content(file).build();
+	}
+
+	private static byte[] bytesOf(final ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,179 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jodd.mail.fixture.SmtpStandIn;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static jakarta.mail.Message.RecipientType;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailTemplateTest {
+
+	private static final byte[] BYTES_11_15 = {11, 12, 13, 14, 15};
+
+	private final Session session = Session.getInstance(new Properties());
+
+	@Test
+	void testTemplateWithAttachment() throws MessagingException, IOException {
+		final EmailTemplate template = EmailTemplate.of(Email.create()
+			.from("campaign@jodd.org")
+			.subject("News")
+			.header("X-Campaign", "42")
+			.textMessage("Hello!")
+			.htmlMessage("<b>Hello!</b>")
+			.attachment(EmailAttachment.with().name("file.zip").content(BYTES_11_15, "application/zip")));
+
+		assertTrue(template.getContentSize() > 0);
+
+		final MimeMessage first = sendAndParse(template, Email.create().to("one@jodd.org"));
+		final MimeMessage second = sendAndParse(template, Email.create().to("two@jodd.org").subject("Hi two"));
+
+		assertEquals("one@jodd.org", first.getRecipients(RecipientType.TO)[0].toString());
+		assertEquals("two@jodd.org", second.getRecipients(RecipientType.TO)[0].toString());
+		assertEquals("campaign@jodd.org", first.getFrom()[0].toString());
+		assertEquals("News", first.getSubject());
+		assertEquals("Hi two", second.getSubject());
+		assertEquals("42", second.getHeader("X-Campaign", null));
+		assertNotEquals(first.getMessageID(), second.getMessageID());
+
+		final MimeMultipart multipart = (MimeMultipart) second.getContent();
+		assertEquals(2, multipart.getCount());
+
+		final MimeMultipart alternative = (MimeMultipart) ((MimeBodyPart) multipart.getBodyPart(0)).getContent();
+		assertEquals(2, alternative.getCount());
+		assertEquals("Hello!", alternative.getBodyPart(0).getContent());
+		assertEquals("<b>Hello!</b>", alternative.getBodyPart(1).getContent());
+
+		final MimeBodyPart attachment = (MimeBodyPart) multipart.getBodyPart(1);
+		assertEquals("file.zip", attachment.getFileName());
+		final ByteArrayOutputStream attachmentContent = new ByteArrayOutputStream();
+		attachment.getDataHandler().writeTo(attachmentContent);
+		assertArrayEquals(BYTES_11_15, attachmentContent.toByteArray());
+	}
+
+	@Test
+	void testTemplateWithSingleMessage() throws MessagingException, IOException {
+		final EmailTemplate template = EmailTemplate.of(Email.create()
+			.from("campaign@jodd.org")
+			.textMessage("Hello!"));
+
+		final MimeMessage message = sendAndParse(template, Email.create().to("one@jodd.org").from("other@jodd.org"));
+
+		assertEquals("other@jodd.org", message.getFrom()[0].toString());
+		assertEquals("Hello!", message.getContent());
+	}
+
+	@Test
+	void testTemplateWithPlaceholders() throws MessagingException, IOException {
+		final EmailTemplate template = EmailTemplate.of(Email.create()
+			.from("campaign@jodd.org")
+			.subject("News for ${name}")
+			.header("X-Campaign", "${campaign}-${unknown}")
+			.textMessage("Hello ${name}!"));
+
+		final Map<String, String> placeholders = new HashMap<>();
+		placeholders.put("name", "Jodd");
+		placeholders.put("campaign", "42");
+
+		final Message message = new SendMailSession(session, null)
+			.createMessage(template, Email.create().to("one@jodd.org"), placeholders);
+		final MimeMessage parsed = parse(message);
+
+		assertEquals("News for Jodd", parsed.getSubject());
+		assertEquals("42-${unknown}", parsed.getHeader("X-Campaign", null));
+		// the content is sent unchanged
+		assertEquals("Hello ${name}!", parsed.getContent());
+	}
+
+	@Test
+	void testTemplateWithoutSender() {
+		final EmailTemplate template = EmailTemplate.of(Email.create().textMessage("Hello!"));
+
+		final MailException mex = assertThrows(MailException.class,
+			() -> new SendMailSession(session, null).createMessage(template, Email.create().to("one@jodd.org")));
+		assertTrue(mex.getMessage().contains("Sender"));
+	}
+
+	@Test
+	void testTemplateWithAllow8BitMime() throws MessagingException, IOException {
+		final SmtpStandIn standIn = new SmtpStandIn(false, false).start();
+		try {
+			final SmtpServer smtpServer = MailServer.create()
+				.host("localhost")
+				.port(standIn.port())
+				.property("mail.smtp.allow8bitmime", "true")
+				.buildSmtpMailServer();
+
+			final EmailTemplate template = EmailTemplate.of(Email.create()
+				.from("campaign@jodd.org")
+				.textMessage("Grüße, žluťoučký kůň", "UTF-8"));
+
+			try (final SendMailSession sendMailSession = smtpServer.createSession()) {
+				sendMailSession.open();
+				sendMailSession.sendMail(template, Email.create().to("one@jodd.org"));
+			}
+
+			assertEquals(1, standIn.messages().size());
+			final MimeMessage message = new MimeMessage(session,
+				new ByteArrayInputStream(standIn.messages().get(0).getBytes(StandardCharsets.UTF_8)));
+
+			assertEquals("8bit", message.getEncoding());
+			assertEquals("Grüße, žluťoučký kůň", ((String) message.getContent()).trim());
+		}
+		finally {
+			standIn.stop();
+		}
+	}
+
+	private MimeMessage sendAndParse(final EmailTemplate template, final Email email) throws MessagingException, IOException {
+		return parse(new SendMailSession(session, null).createMessage(template, email));
+	}
+
+	private MimeMessage parse(final Message message) throws MessagingException, IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+		return new MimeMessage(session, new ByteArrayInputStream(out.toByteArray()));
+	}
+}
@@ -0,0 +1,180 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jodd.mail.fixture.SmtpStandIn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FanOutSenderTest {
+
+	private SmtpStandIn defaultRelay;
+	private SmtpStandIn otherRelay;
+
+	@BeforeEach
+	void startStandIns() {
+		defaultRelay = new SmtpStandIn(false, false).start();
+		otherRelay = new SmtpStandIn(false, false).start();
+	}
+
+	@AfterEach
+	void stopStandIns() {
+		defaultRelay.stop();
+		otherRelay.stop();
+	}
+
+	@Test
+	void testFanOutByDomain() {
+		final Email email = Email.create()
+			.from("news@jodd.org")
+			.to("news@jodd.org")
+			.subject("Newsletter")
+			.textMessage("Hello!");
+		for (int i = 0; i < 120; i++) {
+			email.bcc("user" + i + "@one.org");
+		}
+		for (int i = 0; i < 130; i++) {
+			email.bcc("user" + i + "@Other.org");
+		}
+
+		final SendResult[] results;
+		try (final SmtpConnectionPool defaultPool = SmtpConnectionPool.create(smtpServer(defaultRelay)).maxTotal(2).build();
+			 final SmtpConnectionPool otherPool = SmtpConnectionPool.create(smtpServer(otherRelay)).maxTotal(2).build();
+			 final FanOutSender sender = FanOutSender.create(defaultPool)
+				 .relay("other.org", otherPool)
+				 .maxRecipientsPerMessage(50)
+				 .workers(4)
+				 .build()) {
+
+			results = sender.send(email);
+		}
+
+		// jodd.org: 1, one.org: 50 + 50 + 20, other.org: 50 + 50 + 30
+		assertEquals(7, results.length);
+		int accepted = 0;
+		for (final SendResult result : results) {
+			assertTrue(result.isSuccess());
+			assertTrue(result.getAccepted().length <= 50);
+			accepted += result.getAccepted().length;
+		}
+		assertEquals(251, accepted);
+
+		assertEquals(4, defaultRelay.messages().size());
+		assertEquals(121, rcptCount(defaultRelay));
+		assertEquals(3, otherRelay.messages().size());
+		assertEquals(130, rcptCount(otherRelay));
+	}
+
+	@Test
+	void testRelayNotAvailable() {
+		final Email email = Email.create()
+			.from("news@jodd.org")
+			.to("one@one.org")
+			.to("two@other.org")
+			.textMessage("Hello!");
+
+		final SmtpServer unavailableServer = MailServer.create()
+			.host("localhost")
+			.port(otherRelay.port())
+			.buildSmtpMailServer();
+		otherRelay.stop();
+
+		final SendResult[] results;
+		try (final SmtpConnectionPool defaultPool = SmtpConnectionPool.create(smtpServer(defaultRelay)).build();
+			 final SmtpConnectionPool otherPool = SmtpConnectionPool.create(unavailableServer).build();
+			 final FanOutSender sender = FanOutSender.create(defaultPool).relay("other.org", otherPool).build()) {
+
+			results = sender.send(email);
+		}
+
+		assertEquals(2, results.length);
+		assertTrue(results[0].isSuccess());
+		assertFalse(results[1].isSuccess());
+		assertEquals("two@other.org", results[1].getRejected()[0].getEmail());
+	}
+
+	@Test
+	void testMaxRecipientsPerConnection() {
+		final Email email = Email.create()
+			.from("news@jodd.org")
+			.subject("Newsletter")
+			.textMessage("Hello!");
+		for (int i = 0; i < 120; i++) {
+			email.bcc("user" + i + "@one.org");
+		}
+
+		final SendResult[] results;
+		try (final SmtpConnectionPool defaultPool = SmtpConnectionPool.create(smtpServer(defaultRelay)).maxTotal(1).build();
+			 final FanOutSender sender = FanOutSender.create(defaultPool)
+				 .maxRecipientsPerMessage(50)
+				 .maxRecipientsPerConnection(60)
+				 .workers(1)
+				 .build()) {
+
+			results = sender.send(email);
+		}
+
+		// parts of 50, 50 and 20 recipients, each on its own connection
+		assertEquals(3, results.length);
+		assertEquals(3, defaultRelay.commands().stream().filter(command -> command.startsWith("EHLO")).count());
+		assertEquals(120, rcptCount(defaultRelay));
+
+		// message is created once and shared by all parts
+		assertEquals(1, defaultRelay.messages().stream().map(FanOutSenderTest::messageId).distinct().count());
+		assertEquals(results[0].getMessageId(), results[2].getMessageId());
+	}
+
+	@Test
+	void testDomainOf() {
+		assertEquals("jodd.org", FanOutSender.domainOf("Info@Jodd.ORG"));
+		assertEquals("jodd.org", FanOutSender.domainOf("\"a@b\"@jodd.org"));
+	}
+
+	private static long rcptCount(final SmtpStandIn standIn) {
+		return standIn.commands().stream().filter(command -> command.startsWith("RCPT TO:")).count();
+	}
+
+	private static String messageId(final String message) {
+		for (final String line : message.split("\r\n")) {
+			if (line.startsWith("Message-ID:")) {
+				return line;
+			}
+		}
+		return null;
+	}
+
+	private static SmtpServer smtpServer(final SmtpStandIn standIn) {
+		return MailServer.create()
+			.host("localhost")
+			.port(standIn.port())
+			.buildSmtpMailServer();
+	}
+}
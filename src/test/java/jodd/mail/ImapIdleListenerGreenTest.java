@@ -0,0 +1,152 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jodd.mail.fixture.GreenMailServer;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImapIdleListenerGreenTest {
+
+	private GreenMailServer greenMail;
+	private int sentCount;
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+		sentCount = 0;
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testIdle() throws InterruptedException {
+		sendEmail();
+
+		final BlockingQueue<ReceivedEmail> received = new LinkedBlockingQueue<>();
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			try (final ImapIdleListener listener = ImapIdleListener.create(session, received::add).build().start()) {
+				// existing messages are skipped
+				assertNull(received.poll(500, TimeUnit.MILLISECONDS));
+
+				final long start = System.nanoTime();
+				sendEmail();
+				final ReceivedEmail email = received.poll(5, TimeUnit.SECONDS);
+				final long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+				assertNotNull(email);
+				assertEquals("Mail 1", email.subject());
+				assertEquals("Hello 1", email.messages().get(0).getContent());
+				assertTrue(latency < 1000, "latency: " + latency);
+				assertTrue(listener.isRunning());
+			}
+		}
+	}
+
+	@Test
+	void testIdleIsReissued() throws InterruptedException {
+		final BlockingQueue<ReceivedEmail> received = new LinkedBlockingQueue<>();
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			try (final ImapIdleListener listener = ImapIdleListener.create(session, received::add).idleTimeout(100).build().start()) {
+				Thread.sleep(500);
+
+				sendEmail();
+				sendEmail();
+
+				assertEquals("Mail 0", received.poll(5, TimeUnit.SECONDS).subject());
+				assertEquals("Mail 1", received.poll(5, TimeUnit.SECONDS).subject());
+				assertTrue(listener.isRunning());
+			}
+		}
+	}
+
+	@Test
+	void testPollingFallback() throws InterruptedException {
+		final BlockingQueue<ReceivedEmail> received = new LinkedBlockingQueue<>();
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			final ImapIdleListener listener = ImapIdleListener.create(session, received::add)
+				.idle(false)
+				.pollInterval(50, 200)
+				.build()
+				.start();
+
+			sendEmail();
+			assertEquals("Mail 0", received.poll(5, TimeUnit.SECONDS).subject());
+
+			listener.close();
+			assertFalse(listener.isRunning());
+		}
+	}
+
+	private void sendEmail() {
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			session.sendMail(Email.create()
+				.from("jodd@use.me")
+				.to(GreenMailServer.GREEN_MAIL_COM)
+				.subject("Mail " + sentCount)
+				.textMessage("Hello " + sentCount));
+			sentCount++;
+		}
+		assertTrue(greenMail.waitForIncomingEmail(5000, sentCount));
+	}
+
+	private static ImapServer imapServer() {
+		return MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.IMAP_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			// GreenMail brings the legacy mail implementation to the classpath as well
+			.property("mail.imap.class", IMAPStore.class.getName())
+			.buildImapMailServer();
+	}
+}
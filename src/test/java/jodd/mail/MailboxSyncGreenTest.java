@@ -0,0 +1,227 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.FetchProfile;
+import jodd.mail.fixture.GreenMailServer;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailboxSyncGreenTest {
+
+	@TempDir
+	File tempDir;
+
+	private GreenMailServer greenMail;
+	private int sentCount;
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+		sentCount = 0;
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testIncrementalSync() {
+		final File checkpointFile = new File(tempDir, "sync.properties");
+		sendEmails(3);
+
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+			final MailboxSync mailboxSync = MailboxSync.create(session).checkpointFile(checkpointFile).windowSize(2).build();
+
+			final ReceivedEmail[] emails = mailboxSync.sync();
+			assertEquals(3, emails.length);
+			for (int i = 0; i < 3; i++) {
+				assertEquals("Mail " + i, emails[i].subject());
+				assertEquals("Hello " + i, emails[i].messages().get(0).getContent());
+				assertTrue(emails[i].uid() > 0);
+			}
+
+			assertEquals(0, mailboxSync.sync().length);
+
+			sendEmails(2);
+
+			final ReceivedEmail[] newEmails = mailboxSync.sync();
+			assertEquals(2, newEmails.length);
+			assertEquals("Mail 3", newEmails[0].subject());
+			assertEquals("Mail 4", newEmails[1].subject());
+			assertEquals(newEmails[1].uid(), new FileCheckpointStore(checkpointFile).load("INBOX").lastUid());
+		}
+
+		// sync continues from the persisted checkpoint
+		sendEmails(1);
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+			final ReceivedEmail[] emails = MailboxSync.create(session).checkpointFile(checkpointFile).build().sync();
+
+			assertEquals(1, emails.length);
+			assertEquals("Mail 5", emails[0].subject());
+		}
+	}
+
+	@Test
+	void testUidValidityChanged() {
+		final File checkpointFile = new File(tempDir, "sync.properties");
+		sendEmails(2);
+
+		final FileCheckpointStore checkpointStore = new FileCheckpointStore(checkpointFile);
+		checkpointStore.save("INBOX", new MailboxCheckpoint(-5, 1000));
+
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+			final ReceivedEmail[] emails = MailboxSync.create(session).checkpointStore(checkpointStore).envelopeOnly().build().sync();
+
+			assertEquals(2, emails.length);
+		}
+	}
+
+	@Test
+	void testSyncWithFetchProfileWithoutUid() {
+		final File checkpointFile = new File(tempDir, "sync.properties");
+		sendEmails(2);
+
+		final FetchProfile fetchProfile = new FetchProfile();
+		fetchProfile.add(FetchProfile.Item.ENVELOPE);
+
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+			final MailboxSync mailboxSync = MailboxSync.create(session)
+				.checkpointFile(checkpointFile)
+				.fetchProfile(fetchProfile)
+				.envelopeOnly()
+				.build();
+
+			final ReceivedEmail[] emails = mailboxSync.sync();
+			assertEquals(2, emails.length);
+			assertEquals(emails[1].uid(), new FileCheckpointStore(checkpointFile).load("INBOX").lastUid());
+			assertEquals(0, mailboxSync.sync().length);
+		}
+	}
+
+	@Test
+	void testSkipExisting() {
+		final File checkpointFile = new File(tempDir, "sync.properties");
+		sendEmails(2);
+
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+			final MailboxSync mailboxSync = MailboxSync.create(session).checkpointFile(checkpointFile).skipExisting().build();
+
+			assertEquals(0, mailboxSync.sync().length);
+
+			sendEmails(1);
+
+			final ReceivedEmail[] emails = mailboxSync.sync();
+			assertEquals(1, emails.length);
+			assertEquals("Mail 2", emails[0].subject());
+		}
+	}
+
+	@Test
+	void testFailedConsumer() {
+		final File checkpointFile = new File(tempDir, "sync.properties");
+		sendEmails(5);
+
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+			final MailboxSync mailboxSync = MailboxSync.create(session).checkpointFile(checkpointFile).windowSize(2).build();
+
+			final int[] consumed = new int[1];
+			assertThrows(IllegalStateException.class, () -> mailboxSync.sync(email -> {
+				if (++consumed[0] == 3) {
+					throw new IllegalStateException();
+				}
+			}));
+
+			// the first window is not received again
+			final ReceivedEmail[] emails = mailboxSync.sync();
+			assertEquals(3, emails.length);
+			assertEquals("Mail 2", emails[0].subject());
+		}
+	}
+
+	@Test
+	void testFileCheckpointStore() {
+		final File checkpointFile = new File(tempDir, "sync.properties");
+		final FileCheckpointStore checkpointStore = new FileCheckpointStore(checkpointFile);
+
+		assertNull(checkpointStore.load("INBOX"));
+
+		checkpointStore.save("INBOX", new MailboxCheckpoint(123, 45));
+		checkpointStore.save("Shared/Sales", new MailboxCheckpoint(7, 8));
+
+		final FileCheckpointStore reloaded = new FileCheckpointStore(checkpointFile);
+		assertEquals(123, reloaded.load("INBOX").uidValidity());
+		assertEquals(45, reloaded.load("INBOX").lastUid());
+		assertEquals(8, reloaded.load("Shared/Sales").lastUid());
+	}
+
+	private void sendEmails(final int count) {
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			for (int i = 0; i < count; i++) {
+				session.sendMail(Email.create()
+					.from("jodd@use.me")
+					.to(GreenMailServer.GREEN_MAIL_COM)
+					.subject("Mail " + sentCount)
+					.textMessage("Hello " + sentCount));
+				sentCount++;
+			}
+		}
+		assertTrue(greenMail.waitForIncomingEmail(5000, sentCount));
+	}
+
+	private static ImapServer imapServer() {
+		return MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.IMAP_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			// GreenMail brings the legacy mail implementation to the classpath as well
+			.property("mail.imap.class", IMAPStore.class.getName())
+			.buildImapMailServer();
+	}
+}
@@ -0,0 +1,225 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.activation.FileDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MboxReaderTest {
+
+	@TempDir
+	File folder;
+
+	@Test
+	void testReadMbox() throws IOException {
+		final File mbox = write(
+			"From alice@example.com Sat Jan  3 01:05:34 2026\n" +
+			message("alice@example.com", "First", "Hello\n>From the start\n") +
+			"\n" +
+			"From bob@example.com Sat Jan  3 01:06:00 2026\n" +
+			message("bob@example.com", "Second", "World\n") +
+			"\n");
+
+		try (final MboxReader reader = EMLParser.create().openMbox(mbox)) {
+			assertEquals(2, reader.size());
+
+			final List<String> subjects = reader.stream().map(ReceivedEmail::subject).collect(Collectors.toList());
+			assertEquals(2, subjects.size());
+			assertEquals("First", subjects.get(0));
+			assertEquals("Second", subjects.get(1));
+
+			final ReceivedEmail first = reader.get(0);
+			assertEquals("alice@example.com", first.from().getEmail());
+			// quoted lines are kept as they are
+			assertTrue(first.messages().get(0).getContent().contains(">From the start"));
+
+			final ReceivedEmail second = reader.get(1);
+			assertEquals("World", second.messages().get(0).getContent().trim());
+			assertEquals(message("bob@example.com", "Second", "World\n").length(), reader.messageSize(1));
+		}
+	}
+
+	@Test
+	void testReadMboxWithCrLf() throws IOException {
+		final String content =
+			"From a@example.com Sat Jan  3 01:05:34 2026\r\n" +
+			message("a@example.com", "One", "1\n").replace("\n", "\r\n") +
+			"\r\n" +
+			"From b@example.com Sat Jan  3 01:05:35 2026\r\n" +
+			message("b@example.com", "Two", "2\n").replace("\n", "\r\n");
+
+		try (final MboxReader reader = EMLParser.create().openMbox(write(content))) {
+			assertEquals(2, reader.size());
+			assertEquals("One", reader.get(0).subject());
+			assertEquals("Two", reader.get(1).subject());
+			assertEquals(content.indexOf("From: b@"), reader.offset(1));
+		}
+	}
+
+	@Test
+	void testUnquotedFromLineInMbox() throws IOException {
+		final File mbox = write(
+			"From alice@example.com Sat Jan  3 01:05:34 2026\n" +
+			message("alice@example.com", "First", "Hello,\nFrom my phone, sent quickly.\n") +
+			"\n" +
+			"From bob@example.com Sat Jan  3 01:06:00 2026\n" +
+			message("bob@example.com", "Second", "World\n") +
+			"\n");
+
+		try (final MboxReader reader = EMLParser.create().openMbox(mbox)) {
+			assertEquals(2, reader.size());
+			assertEquals("Hello,\nFrom my phone, sent quickly.", reader.get(0).messages().get(0).getContent().trim());
+			assertEquals("Second", reader.get(1).subject());
+		}
+	}
+
+	@Test
+	void testUnquotedFromLineInEml() throws IOException {
+		final File eml = new File(folder, "test.eml");
+		Files.write(eml.toPath(), message("alice@example.com", "Single", "Hello,\nFrom my phone, sent quickly.\n")
+			.getBytes(StandardCharsets.US_ASCII));
+
+		try (final MboxReader reader = EMLParser.create().openMbox(eml)) {
+			assertEquals(1, reader.size());
+			final ReceivedEmail email = reader.get(0);
+			assertEquals("Single", email.subject());
+			assertEquals("Hello,\nFrom my phone, sent quickly.", email.messages().get(0).getContent().trim());
+		}
+	}
+
+	@Test
+	void testFromParagraphInEml() throws IOException {
+		final File eml = new File(folder, "test.eml");
+		Files.write(eml.toPath(), message("alice@example.com", "Single", "Hello,\n\nFrom my side, all is well.\n")
+			.getBytes(StandardCharsets.US_ASCII));
+
+		try (final MboxReader reader = EMLParser.create().openMbox(eml)) {
+			assertEquals(1, reader.size());
+			assertEquals(eml.length(), reader.messageSize(0));
+			assertEquals("Hello,\n\nFrom my side, all is well.", reader.get(0).messages().get(0).getContent().trim());
+		}
+	}
+
+	@Test
+	void testReadManyMessagesLazily() throws IOException {
+		final StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			content.append("From sender@example.com Sat Jan  3 01:05:34 2026\n");
+			content.append(message("sender@example.com", "Message " + i, "Body " + i + "\n"));
+			content.append('\n');
+		}
+
+		try (final MboxReader reader = EMLParser.create().lazy().openMbox(write(content.toString()))) {
+			assertEquals(1000, reader.size());
+
+			int index = 0;
+			for (final ReceivedEmail email : reader) {
+				assertFalse(email.isContentLoaded());
+				assertEquals("Message " + index, email.subject());
+				assertEquals("Body " + index, email.messages().get(0).getContent().trim());
+				assertTrue(email.isContentLoaded());
+				index++;
+			}
+			assertEquals(1000, index);
+		}
+	}
+
+	@Test
+	void testStoredAttachments() throws IOException {
+		final String attachment = "attached content";
+		final File mbox = write(
+			"From alice@example.com Sat Jan  3 01:05:34 2026\n" +
+			"From: alice@example.com\n" +
+			"Subject: Attachment\n" +
+			"Message-ID: <attachment@example.com>\n" +
+			"MIME-Version: 1.0\n" +
+			"Content-Type: multipart/mixed; boundary=\"b1\"\n" +
+			"\n" +
+			"--b1\n" +
+			"Content-Type: text/plain\n" +
+			"\n" +
+			"See attached\n" +
+			"--b1\n" +
+			"Content-Type: application/octet-stream; name=\"a.bin\"\n" +
+			"Content-Disposition: attachment; filename=\"a.bin\"\n" +
+			"\n" +
+			attachment + "\n" +
+			"--b1--\n");
+		final File storage = new File(folder, "storage");
+
+		try (final MboxReader reader = EMLParser.create()
+			.storeAttachmentsIn(new ContentAddressedAttachmentStore(storage))
+			.openMbox(mbox)) {
+
+			final ReceivedEmail email = reader.get(0);
+			assertEquals(1, email.attachments().size());
+			assertArrayEquals(attachment.getBytes(StandardCharsets.US_ASCII), email.attachments().get(0).toByteArray());
+			assertTrue(email.attachments().get(0).getDataSource() instanceof FileDataSource);
+		}
+	}
+
+	@Test
+	void testReadSingleEml() {
+		final URL data = EMLParserTest.class.getResource("test");
+		final File emlFile = new File(data.getFile(), "example.eml");
+
+		try (final MboxReader reader = EMLParser.create().openMbox(emlFile)) {
+			assertEquals(1, reader.size());
+			assertEquals(0, reader.offset(0));
+			assertEquals("test!", reader.get(0).subject());
+			assertThrows(IndexOutOfBoundsException.class, () -> reader.get(1));
+		}
+	}
+
+	private static String message(final String from, final String subject, final String body) {
+		return
+			"From: " + from + "\n" +
+			"Subject: " + subject + "\n" +
+			"\n" +
+			body;
+	}
+
+	private File write(final String content) throws IOException {
+		final File file = new File(folder, "test.mbox");
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+}
@@ -0,0 +1,208 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jodd.mail.fixture.GreenMailServer;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelMailboxReaderGreenTest {
+
+	private static final int COUNT = 25;
+	private static final int ARCHIVED = 10;
+	private static final Pattern FETCH = Pattern.compile("^([A-Z]+)\\d+ (UID )?FETCH .*");
+
+	private GreenMailServer greenMail;
+	private final List<String> fetchingConnections = Collections.synchronizedList(new ArrayList<>());
+
+	@BeforeEach
+	void startGreenMailInstance() throws MessagingException {
+		greenMail = new GreenMailServer().start();
+
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			for (int i = 0; i < COUNT; i++) {
+				session.sendMail(Email.create()
+					.from("jodd@use.me")
+					.to(GreenMailServer.GREEN_MAIL_COM)
+					.subject("Mail " + i)
+					.textMessage("Hello " + i));
+			}
+		}
+		assertTrue(greenMail.waitForIncomingEmail(5000, COUNT));
+
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+			final Folder archive = session.getFolder("archive");
+			archive.create(Folder.HOLDS_MESSAGES);
+
+			session.useFolder("INBOX");
+			session.folder.copyMessages(session.folder.getMessages(1, ARCHIVED), archive);
+		}
+		fetchingConnections.clear();
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testReadFoldersInParallel() {
+		final List<String> subjects;
+
+		try (final ParallelMailboxReader reader = ParallelMailboxReader.create(imapServer())
+				.folders("INBOX", "archive")
+				.connections(3)
+				.rangeSize(4)
+				.build()) {
+
+			try (final Stream<ReceivedEmail> stream = reader.stream()) {
+				subjects = stream.map(ReceivedEmail::subject).collect(Collectors.toList());
+			}
+		}
+
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++) {
+			expected.add("Mail " + i);
+		}
+		for (int i = 0; i < ARCHIVED; i++) {
+			expected.add("Mail " + i);
+		}
+		assertEquals(expected, subjects);
+
+		final Set<String> connections = fetchingConnections.stream().collect(Collectors.toSet());
+		assertTrue(connections.size() > 1, connections.toString());
+	}
+
+	@Test
+	void testExpungeWhileReading() {
+		final List<String> subjects = new ArrayList<>();
+
+		try (final ParallelMailboxReader reader = ParallelMailboxReader.create(imapServer())
+				.folders("INBOX")
+				.connections(2)
+				.rangeSize(4)
+				.build()) {
+
+			final List<ParallelMailboxReader.Range> ranges = reader.planRanges();
+			addSubjects(subjects, reader.readRange(ranges.get(0)));
+
+			// other client expunges messages that are already read
+			try (final ReceiveMailSession session = imapServer().createSession()) {
+				session.open();
+				session.useFolder("INBOX");
+				session.folder.setFlags(1, 2, new Flags(Flags.Flag.DELETED), true);
+				session.folder.expunge();
+			}
+
+			// next range is read over the other connection
+			addSubjects(subjects, reader.readRange(ranges.get(1)));
+		}
+		catch (final MessagingException msgexc) {
+			throw new MailException(msgexc);
+		}
+
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			expected.add("Mail " + i);
+		}
+		assertEquals(expected, subjects);
+	}
+
+	@Test
+	void testReadAllFolders() {
+		try (final ParallelMailboxReader reader = ParallelMailboxReader.create(imapServer())
+				.connections(2)
+				.rangeSize(7)
+				.envelopeOnly()
+				.build()) {
+
+			assertEquals(COUNT + ARCHIVED, reader.stream().count());
+
+			// reader can be streamed again
+			assertEquals("Mail 0", reader.stream().findFirst().map(ReceivedEmail::subject).orElse(null));
+		}
+	}
+
+	@Test
+	void testReadMissingFolder() {
+		try (final ParallelMailboxReader reader = ParallelMailboxReader.create(imapServer())
+				.folders("missing")
+				.build()) {
+
+			assertThrows(MailException.class, reader::stream);
+		}
+	}
+
+	private static void addSubjects(final List<String> subjects, final ReceivedEmail[] emails) {
+		for (final ReceivedEmail email : emails) {
+			subjects.add(email.subject());
+		}
+	}
+
+	private ImapServer imapServer() {
+		return MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.IMAP_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			// GreenMail brings the legacy mail implementation to the classpath as well
+			.property("mail.imap.class", IMAPStore.class.getName())
+			.debugMode(true)
+			.debugConsumer(record -> {
+				for (final String line : record.split("\\R")) {
+					final Matcher matcher = FETCH.matcher(line);
+					if (matcher.matches()) {
+						fetchingConnections.add(matcher.group(1));
+					}
+				}
+			})
+			.buildImapMailServer();
+	}
+}
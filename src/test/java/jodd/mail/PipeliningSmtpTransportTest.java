@@ -0,0 +1,153 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jodd.mail.fixture.SmtpStandIn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipeliningSmtpTransportTest {
+
+	private static final int RECIPIENTS = 30;
+
+	private SmtpStandIn standIn;
+
+	@AfterEach
+	void stopStandIn() {
+		standIn.stop();
+	}
+
+	@Test
+	void testPipeliningSavesRoundTrips() {
+		standIn = new SmtpStandIn(true, false).start();
+
+		final int lockstep = roundTripsOfSend(false);
+		final int pipelined = roundTripsOfSend(true);
+
+		assertTrue(lockstep > RECIPIENTS);
+		assertTrue(pipelined < lockstep / 4);
+		assertEquals(2, standIn.messages().size());
+		assertTrue(standIn.messages().get(1).contains("Hello!"));
+	}
+
+	@Test
+	void testPipeliningNotAdvertised() {
+		standIn = new SmtpStandIn(false, false).start();
+
+		final int pipelined = roundTripsOfSend(true);
+
+		assertTrue(pipelined > RECIPIENTS);
+		assertEquals(1, standIn.messages().size());
+	}
+
+	@Test
+	void testRejectedRecipient() {
+		standIn = new SmtpStandIn(true, false).start();
+
+		try (final SendMailSession session = smtpServer(true, 0).createSession()) {
+			session.open();
+
+			final SendResult[] results = session.sendMails(Arrays.asList(
+				email().to("bad@jodd.org"),
+				email().to("good@jodd.org")));
+
+			assertFalse(results[0].isSuccess());
+			assertEquals("bad@jodd.org", results[0].getRejected()[0].getEmail());
+			assertTrue(results[1].isSuccess());
+			assertNotNull(results[1].getMessageId());
+		}
+
+		assertEquals(1, standIn.messages().size());
+	}
+
+	@Test
+	void testRejectedSenderResetsTransaction() {
+		standIn = new SmtpStandIn(true, false).start();
+
+		try (final SendMailSession session = smtpServer(true, 0).createSession()) {
+			session.open();
+
+			assertThrows(MailException.class, () -> session.sendMail(email().from("bad@jodd.org").to("one@jodd.org")));
+			assertEquals("RSET", standIn.commands().get(standIn.commands().size() - 1));
+
+			session.sendMail(email().to("two@jodd.org"));
+		}
+
+		assertEquals(1, standIn.messages().size());
+	}
+
+	@Test
+	void testChunking() {
+		standIn = new SmtpStandIn(true, true).start();
+
+		try (final SendMailSession session = smtpServer(true, 1024).createSession()) {
+			session.open();
+			session.sendMail(email().to("one@jodd.org"));
+		}
+
+		assertTrue(standIn.commands().stream().anyMatch(command -> command.startsWith("BDAT")));
+		assertFalse(standIn.commands().contains("DATA"));
+		assertTrue(String.join("", standIn.messages()).contains("Hello!"));
+	}
+
+	private int roundTripsOfSend(final boolean pipelining) {
+		final Email email = email().to("to@jodd.org");
+		for (int i = 0; i < RECIPIENTS; i++) {
+			email.bcc("bcc" + i + "@jodd.org");
+		}
+
+		try (final SendMailSession session = smtpServer(pipelining, 0).createSession()) {
+			session.open();
+			standIn.resetRoundTrips();
+			session.sendMail(email);
+			return standIn.roundTrips();
+		}
+	}
+
+	private SmtpServer smtpServer(final boolean pipelining, final int chunkSize) {
+		return MailServer.create()
+			.host("localhost")
+			.port(standIn.port())
+			.pipelining(pipelining)
+			.chunkSize(chunkSize)
+			.buildSmtpMailServer();
+	}
+
+	private static Email email() {
+		return Email.create()
+			.from("from@jodd.org")
+			.subject("Pipelining")
+			.textMessage("Hello!");
+	}
+}
@@ -0,0 +1,171 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.FetchProfile;
+import jakarta.mail.UIDFolder;
+import jodd.mail.fixture.GreenMailServer;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiveFetchProfileGreenTest {
+
+	private static final int COUNT = 30;
+	private static final Pattern FETCH_COMMAND = Pattern.compile("^[A-Z]+\\d+ (UID )?FETCH .*");
+
+	private GreenMailServer greenMail;
+	private final List<String> fetchCommands = new ArrayList<>();
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			for (int i = 0; i < COUNT; i++) {
+				session.sendMail(Email.create()
+					.from("jodd@use.me")
+					.to(GreenMailServer.GREEN_MAIL_COM)
+					.subject("Mail " + i)
+					.textMessage("Hello " + i)
+					.htmlMessage("<b>Hello " + i + "</b>"));
+			}
+		}
+		assertTrue(greenMail.waitForIncomingEmail(5000, COUNT));
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testDefaultFetchProfile() {
+		final int withoutPrefetch = receive(new FetchProfile(), 0);
+		final int withPrefetch = receive(null, 0);
+
+		// only the two body parts are fetched per message
+		assertEquals(1 + 2 * COUNT, withPrefetch);
+		assertTrue(withoutPrefetch >= 6 * COUNT, "fetches: " + withoutPrefetch);
+	}
+
+	@Test
+	void testFetchProfileInBatches() {
+		final FetchProfile fetchProfile = new FetchProfile();
+		fetchProfile.add(FetchProfile.Item.ENVELOPE);
+		fetchProfile.add(FetchProfile.Item.FLAGS);
+		fetchProfile.add(FetchProfile.Item.SIZE);
+		fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+
+		receive(fetchProfile, 10);
+
+		final long batches = fetchCommands.stream().filter(command -> command.contains(" UID ")).count();
+		assertEquals(3, batches);
+	}
+
+	@Test
+	void testFetchProfileWithoutUid() {
+		final FetchProfile fetchProfile = new FetchProfile();
+		fetchProfile.add(FetchProfile.Item.ENVELOPE);
+		fetchProfile.add(FetchProfile.Item.CONTENT_INFO);
+
+		receive(fetchProfile, 0);
+
+		// UIDs are not fetched per message
+		assertEquals(0, fetchCommands.stream().filter(command -> command.contains("UID")).count(), fetchCommands.toString());
+	}
+
+	@Test
+	void testDefaultFetchProfileOverPop3() {
+		final Pop3Server pop3Server = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.POP3_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			.buildPop3MailServer();
+
+		final ReceivedEmail[] emails;
+		try (final ReceiveMailSession session = pop3Server.createSession()) {
+			session.open();
+			session.useDefaultFolder();
+
+			// headers of POP3 messages are not prefetched, as this takes a command per message
+			assertEquals(0, ReceivedEmails.defaultFetchProfile(session.folder, false).getItems().length);
+			assertEquals(2, ReceivedEmails.defaultFetchProfile(session.folder, true).getItems().length);
+
+			emails = session.receiveEmail();
+		}
+
+		assertEquals(COUNT, emails.length);
+		assertEquals("Hello 0", emails[0].messages().get(0).getContent());
+	}
+
+	private int receive(final FetchProfile fetchProfile, final int fetchBatchSize) {
+		final ImapServer imapServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.IMAP_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			// GreenMail brings the legacy mail implementation to the classpath as well
+			.property("mail.imap.class", IMAPStore.class.getName())
+			.debugMode(true)
+			.debugConsumer(record -> {
+				for (final String line : record.split("\\R")) {
+					if (FETCH_COMMAND.matcher(line).matches()) {
+						fetchCommands.add(line);
+					}
+				}
+			})
+			.buildImapMailServer();
+
+		fetchCommands.clear();
+		final ReceivedEmail[] emails;
+		try (final ReceiveMailSession session = imapServer.createSession()) {
+			session.open();
+			emails = session.receive().fetchProfile(fetchProfile).fetchBatchSize(fetchBatchSize).get();
+		}
+
+		assertEquals(COUNT, emails.length);
+		for (int i = 0; i < COUNT; i++) {
+			assertEquals("Mail " + i, emails[i].subject());
+			assertEquals("Hello " + i, emails[i].messages().get(0).getContent());
+			assertEquals(2, emails[i].messages().size());
+		}
+		return fetchCommands.size();
+	}
+}
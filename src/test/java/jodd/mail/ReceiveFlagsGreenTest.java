@@ -0,0 +1,147 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.Flags;
+import jodd.mail.fixture.GreenMailServer;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiveFlagsGreenTest {
+
+	private static final int COUNT = 30;
+	private static final Pattern STORE_COMMAND = Pattern.compile("^[A-Z]+\\d+ (UID )?STORE .*");
+
+	private GreenMailServer greenMail;
+	private final List<String> storeCommands = new ArrayList<>();
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			for (int i = 0; i < COUNT; i++) {
+				session.sendMail(Email.create()
+					.from("jodd@use.me")
+					.to(GreenMailServer.GREEN_MAIL_COM)
+					.subject("Mail " + i)
+					.textMessage("Hello " + i));
+			}
+		}
+		assertTrue(greenMail.waitForIncomingEmail(5000, COUNT));
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testMarkSeenInOneCommand() {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			final ReceivedEmail[] emails = session.receive().markSeen().get();
+
+			assertEquals(COUNT, emails.length);
+			assertEquals(1, storeCommands.size(), storeCommands.toString());
+			assertEquals(0, session.getUnreadMessageCount());
+		}
+	}
+
+	@Test
+	void testMarkSeenInBatches() {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			try (final Stream<ReceivedEmail> emails = session.receive().markSeen().unmark(Flags.Flag.FLAGGED).stream(10)) {
+				assertEquals(COUNT, emails.count());
+			}
+
+			// set and unset, for each of 3 windows
+			assertEquals(6, storeCommands.size(), storeCommands.toString());
+			assertEquals(0, session.getUnreadMessageCount());
+		}
+	}
+
+	@Test
+	void testBulkUpdateEmailFlags() {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			final ReceivedEmail[] emails = session.receive().envelopeOnly().get();
+			storeCommands.clear();
+
+			for (final ReceivedEmail email : emails) {
+				email.flags().add(Flags.Flag.FLAGGED);
+			}
+			emails[0].flags().add(Flags.Flag.ANSWERED);
+			session.updateEmailFlags(emails);
+
+			assertEquals(2, storeCommands.size(), storeCommands.toString());
+
+			final ReceivedEmail[] updated = session.receive().envelopeOnly().get();
+			for (final ReceivedEmail email : updated) {
+				assertTrue(email.isFlagged());
+			}
+			assertTrue(updated[0].isAnswered());
+		}
+	}
+
+	private ImapServer imapServer() {
+		return MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.IMAP_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			// GreenMail brings the legacy mail implementation to the classpath as well
+			.property("mail.imap.class", IMAPStore.class.getName())
+			.debugMode(true)
+			.debugConsumer(record -> {
+				for (final String line : record.split("\\R")) {
+					if (STORE_COMMAND.matcher(line).matches()) {
+						storeCommands.add(line);
+					}
+				}
+			})
+			.buildImapMailServer();
+	}
+}
@@ -0,0 +1,166 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jodd.mail.fixture.GreenMailServer;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiveLazyGreenTest {
+
+	private static final int COUNT = 3;
+
+	private GreenMailServer greenMail;
+	private final List<String> bodyFetches = new ArrayList<>();
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			for (int i = 0; i < COUNT; i++) {
+				session.sendMail(Email.create()
+					.from("jodd@use.me")
+					.to(GreenMailServer.GREEN_MAIL_COM)
+					.subject("Mail " + i)
+					.textMessage("Hello " + i)
+					.htmlMessage("<b>Hello " + i + "</b>")
+					.attachment(EmailAttachment.with().name("data.bin").content(new byte[] {(byte) i, 1, 2})));
+			}
+		}
+		assertTrue(greenMail.waitForIncomingEmail(5000, COUNT));
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testLazyContent() {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			final ReceivedEmail[] emails = session.receive().lazy().get();
+
+			assertEquals(COUNT, emails.length);
+			for (int i = 0; i < COUNT; i++) {
+				assertEquals("Mail " + i, emails[i].subject());
+				assertEquals("jodd@use.me", emails[i].from().getEmail());
+				assertFalse(emails[i].isContentLoaded());
+			}
+			assertTrue(bodyFetches.isEmpty(), bodyFetches.toString());
+
+			// only the accessed email is downloaded
+			final ReceivedEmail email = emails[1];
+			assertEquals(1, email.attachments().size());
+			assertArrayEquals(new byte[] {1, 1, 2}, email.attachments().get(0).toByteArray());
+			assertEquals(2, email.messages().size());
+			assertEquals("Hello 1", email.messages().get(0).getContent());
+			assertTrue(email.isContentLoaded());
+
+			assertFalse(emails[0].isContentLoaded());
+			assertFalse(emails[2].isContentLoaded());
+			assertFalse(bodyFetches.isEmpty());
+		}
+	}
+
+	@Test
+	void testLazyRejectsDeleteAndMove() {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			assertThrows(MailException.class, () -> session.receive().lazy().markDeleted().get());
+			assertThrows(MailException.class, () -> session.receive().lazy().moveToFolder("archive").get());
+
+			// nothing is received, so nothing is removed
+			assertEquals(COUNT, session.receive().envelopeOnly().get().length);
+		}
+	}
+
+	@Test
+	void testLazyContentFromManyThreads() {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			final ReceivedEmail email = session.receive().lazy().get()[0];
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						start.await();
+					} catch (final InterruptedException iex) {
+						Thread.currentThread().interrupt();
+					}
+					return email.messages().size() + email.attachments().size();
+				}));
+			}
+			start.countDown();
+
+			for (final CompletableFuture<Integer> future : futures) {
+				assertEquals(3, future.join());
+			}
+		}
+	}
+
+	private ImapServer imapServer() {
+		return MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.IMAP_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			// GreenMail brings the legacy mail implementation to the classpath as well
+			.property("mail.imap.class", IMAPStore.class.getName())
+			.debugMode(true)
+			.debugConsumer(record -> {
+				for (final String line : record.split("\\R")) {
+					if (line.matches("^[A-Z]+\\d+ FETCH \\d+ \\(BODY.PEEK\\[\\d.*")) {
+						bodyFetches.add(line);
+					}
+				}
+			})
+			.buildImapMailServer();
+	}
+}
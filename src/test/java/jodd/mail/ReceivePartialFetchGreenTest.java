@@ -0,0 +1,162 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.activation.DataSource;
+import jodd.mail.fixture.GreenMailServer;
+import org.eclipse.angus.mail.imap.IMAPStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceivePartialFetchGreenTest {
+
+	private static final int TEXT_SIZE = 100 * 1024;
+	private static final int LARGE_SIZE = 2 * 1024 * 1024;
+	private static final Pattern FETCH = Pattern.compile("^[A-Z]+\\d+ FETCH .*");
+
+	private GreenMailServer greenMail;
+	private final List<String> fetches = Collections.synchronizedList(new ArrayList<>());
+	private String text;
+	private byte[] small;
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+
+		final StringBuilder sb = new StringBuilder(TEXT_SIZE);
+		while (sb.length() < TEXT_SIZE) {
+			sb.append("Jodd češki ").append(sb.length()).append(' ');
+		}
+		text = sb.toString();
+		small = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+		final byte[] large = new byte[LARGE_SIZE];
+		Arrays.fill(large, (byte) 7);
+
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			session.sendMail(Email.create()
+				.from("jodd@use.me")
+				.to(GreenMailServer.GREEN_MAIL_COM)
+				.subject("Large")
+				.textMessage(text, "UTF-8")
+				.attachment(EmailAttachment.with().name("small.bin").content(small, "application/octet-stream"))
+				.attachment(EmailAttachment.with().name("large.bin").content(large, "application/octet-stream")));
+		}
+		assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testLimitedContent() {
+		final ReceivedEmail email;
+		try (final ReceiveMailSession session = imapServer(4096).createSession()) {
+			session.open();
+			fetches.clear();
+
+			final ReceivedEmail[] emails = session.receive()
+				.maxTextSize(1000)
+				.maxAttachmentSize(1024 * 1024)
+				.get();
+
+			assertEquals(1, emails.length);
+			email = emails[0];
+		}
+
+		// text is read in a single chunk, the large attachment is not downloaded
+		assertTrue(fetches.stream().anyMatch(fetch -> fetch.endsWith("<0.4096>)")), fetches.toString());
+		assertTrue(fetches.stream().noneMatch(fetch -> fetch.contains("BODY.PEEK[3]")), fetches.toString());
+
+		assertTrue(email.isTruncated());
+
+		final String receivedText = email.messages().get(0).getContent();
+		assertTrue(receivedText.length() < 1000);
+		assertTrue(text.startsWith(receivedText), receivedText);
+
+		final List<EmailAttachment<? extends DataSource>> attachments = email.attachments();
+		assertEquals(2, attachments.size());
+		assertEquals("small.bin", attachments.get(0).getName());
+		assertArrayEquals(small, attachments.get(0).toByteArray());
+
+		final EmailAttachment<? extends DataSource> large = attachments.get(1);
+		assertEquals("large.bin", large.getName());
+		assertTrue(large.getContentType().toLowerCase().startsWith("application/octet-stream"));
+		assertTrue(large.getSize() >= LARGE_SIZE, String.valueOf(large.getSize()));
+		assertEquals(0, large.toByteArray().length);
+	}
+
+	@Test
+	void testPartialFetchWithoutLimits() {
+		final ReceivedEmail email;
+		try (final ReceiveMailSession session = imapServer(64 * 1024).createSession()) {
+			session.open();
+			email = session.receive().get()[0];
+		}
+
+		assertFalse(email.isTruncated());
+		assertEquals(text, email.messages().get(0).getContent());
+		assertEquals(LARGE_SIZE, email.attachments().get(1).toByteArray().length);
+	}
+
+	private ImapServer imapServer(final int fetchSize) {
+		return MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.IMAP_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			.fetchSize(fetchSize)
+			// GreenMail brings the legacy mail implementation to the classpath as well
+			.property("mail.imap.class", IMAPStore.class.getName())
+			.debugMode(true)
+			.debugConsumer(record -> {
+				for (final String line : record.split("\\R")) {
+					if (FETCH.matcher(line).matches()) {
+						fetches.add(line);
+					}
+				}
+			})
+			.buildImapMailServer();
+	}
+}
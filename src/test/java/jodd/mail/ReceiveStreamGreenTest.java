@@ -0,0 +1,176 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jodd.mail.fixture.GreenMailServer;
+import org.eclipse.angus.mail.pop3.POP3Store;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiveStreamGreenTest {
+
+	private static final int COUNT = 25;
+
+	private GreenMailServer greenMail;
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			for (int i = 0; i < COUNT; i++) {
+				session.sendMail(Email.create()
+					.from("jodd@use.me")
+					.to(GreenMailServer.GREEN_MAIL_COM)
+					.subject("Mail " + i)
+					.textMessage("Hello " + i));
+			}
+		}
+		assertTrue(greenMail.waitForIncomingEmail(5000, COUNT));
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testStreamInWindows() {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			final List<String> subjects;
+			try (final Stream<ReceivedEmail> emails = session.receive().markSeen().stream(10)) {
+				subjects = emails
+					.peek(email -> assertEquals("Hello " + email.subject().substring(5), email.messages().get(0).getContent()))
+					.map(ReceivedEmail::subject)
+					.collect(Collectors.toList());
+			}
+
+			assertEquals(COUNT, subjects.size());
+			for (int i = 0; i < COUNT; i++) {
+				assertEquals("Mail " + i, subjects.get(i));
+			}
+			assertEquals(0, session.getUnreadMessageCount());
+		}
+	}
+
+	@Test
+	void testPartiallyConsumedStream() throws MessagingException {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+			session.getFolder("archive").create(Folder.HOLDS_MESSAGES);
+
+			try (final Stream<ReceivedEmail> emails = session.receive().moveToFolder("archive").stream(4)) {
+				assertEquals(6, emails.limit(6).count());
+			}
+
+			assertEquals(COUNT - 6, session.getMessageCount());
+
+			session.useFolder("archive");
+			assertEquals(6, session.getMessageCount());
+		}
+	}
+
+	@Test
+	void testIterator() {
+		try (final ReceiveMailSession session = imapServer().createSession()) {
+			session.open();
+
+			int count = 0;
+			final Iterator<ReceivedEmail> iterator = session.receive().envelopeOnly().iterator(7);
+			while (iterator.hasNext()) {
+				assertEquals("Mail " + count, iterator.next().subject());
+				count++;
+			}
+			assertEquals(COUNT, count);
+		}
+	}
+
+	@Test
+	void testStreamOverPop3ReleasesContent() throws MessagingException, IOException {
+		final List<String> retrCommands = new ArrayList<>();
+		final Pop3Server pop3Server = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.POP3_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			// GreenMail brings the legacy mail implementation to the classpath as well
+			.property("mail.pop3.class", POP3Store.class.getName())
+			.debugMode(true)
+			.debugConsumer(record -> {
+				for (final String line : record.split("\\R")) {
+					if (line.startsWith("RETR ")) {
+						retrCommands.add(line);
+					}
+				}
+			})
+			.buildPop3MailServer();
+
+		try (final ReceiveMailSession session = pop3Server.createSession()) {
+			session.open();
+
+			final List<ReceivedEmail> emails;
+			try (final Stream<ReceivedEmail> stream = session.receive().stream(10)) {
+				emails = stream.collect(Collectors.toList());
+			}
+			assertEquals(COUNT, emails.size());
+			assertEquals(COUNT, retrCommands.size());
+
+			// content of the released message is retrieved again
+			final Message message = emails.get(0).originalMessage();
+			assertEquals("Hello 0", ((String) message.getContent()).trim());
+			assertEquals(COUNT + 1, retrCommands.size());
+		}
+	}
+
+	private static ImapServer imapServer() {
+		return MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.IMAP_PORT)
+			.auth(GreenMailServer.USER, GreenMailServer.PASSWORD)
+			.buildImapMailServer();
+	}
+}
@@ -0,0 +1,143 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jodd.mail.fixture.SmtpStandIn;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RelayThrottleTest {
+
+	@Test
+	void testRate() {
+		final RelayThrottle throttle = RelayThrottle.create().messagesPerSecond(20).build();
+
+		final long start = System.nanoTime();
+		for (int i = 0; i < 11; i++) {
+			throttle.acquire("relay");
+			throttle.release("relay", 250);
+		}
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(elapsed >= 450, "elapsed: " + elapsed);
+	}
+
+	@Test
+	void testBurst() {
+		final RelayThrottle throttle = RelayThrottle.create().messagesPerSecond(1).burst(5).build();
+
+		final long start = System.nanoTime();
+		for (int i = 0; i < 5; i++) {
+			throttle.acquire("relay");
+			throttle.release("relay", 250);
+		}
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(elapsed < 500, "elapsed: " + elapsed);
+	}
+
+	@Test
+	void testMaxConcurrent() {
+		final RelayThrottle throttle = RelayThrottle.create()
+			.messagesPerSecond(1000)
+			.maxConcurrent(1)
+			.acquireTimeout(50)
+			.build();
+
+		throttle.acquire("relay");
+		assertThrows(MailException.class, () -> throttle.acquire("relay"));
+
+		// other relays are not limited
+		throttle.acquire("other");
+
+		throttle.release("relay", 250);
+		throttle.acquire("relay");
+	}
+
+	@Test
+	void testBackoffAndRecovery() {
+		final RelayThrottle throttle = RelayThrottle.create().messagesPerSecond(1000).build();
+
+		throttle.release("relay", 421);
+		assertEquals(750, throttle.getMessagesPerSecond("relay"), 1);
+		throttle.release("relay", 451);
+		assertEquals(562.5, throttle.getMessagesPerSecond("relay"), 1);
+
+		// permanent failures do not change the rate
+		throttle.release("relay", 550);
+		assertEquals(562.5, throttle.getMessagesPerSecond("relay"), 1);
+
+		for (int i = 0; i < 50; i++) {
+			throttle.release("relay", 250);
+		}
+		assertEquals(1000, throttle.getMessagesPerSecond("relay"), 1);
+		assertEquals(1000, throttle.getMessagesPerSecond("other"), 1);
+	}
+
+	@Test
+	void testInvalidConfiguration() {
+		assertThrows(MailException.class, () -> RelayThrottle.create().messagesPerSecond(0).build());
+		assertThrows(MailException.class, () -> RelayThrottle.create().backoffFactor(1).build());
+	}
+
+	@Test
+	void testThrottledSmtpServer() {
+		final SmtpStandIn standIn = new SmtpStandIn(false, false).start();
+		final RelayThrottle throttle = RelayThrottle.create().messagesPerSecond(10).build();
+		final SmtpServer smtpServer = MailServer.create()
+			.host("localhost")
+			.port(standIn.port())
+			.throttle(throttle)
+			.buildSmtpMailServer();
+
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).build()) {
+			final long start = System.nanoTime();
+			for (int i = 0; i < 5; i++) {
+				try (final SendMailSession session = pool.borrowSession()) {
+					session.sendMail(Email.create()
+						.from("from@jodd.org")
+						.to("to@jodd.org")
+						.subject("Hello " + i)
+						.textMessage("Hello!"));
+				}
+			}
+			final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			assertTrue(elapsed >= 350, "elapsed: " + elapsed);
+		}
+		finally {
+			standIn.stop();
+		}
+
+		assertEquals(5, standIn.messages().size());
+		assertEquals(10, throttle.getMessagesPerSecond("localhost"), 0.01);
+	}
+}
@@ -26,6 +26,7 @@
 package jodd.mail;
 
 import jakarta.activation.DataSource;
+import jakarta.activation.FileDataSource;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeBodyPart;
@@ -36,11 +37,15 @@ import jodd.net.MimeTypes;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
 import static jakarta.mail.Message.RecipientType;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SendMailTest {
@@ -235,6 +240,64 @@ class SendMailTest {
 		assertEquals("Hello!", bodyPart.getContent());
 	}
 
+	@Test
+	void testFileAttachmentIsNotCopied() throws MessagingException, IOException {
+		final File file = File.createTempFile("jodd-mail", ".zip");
+		file.deleteOnExit();
+		Files.write(file.toPath(), BYTES_11_15);
+
+		final Email email = Email.create()
+				.from("inf0@jodd.org")
+				.to("ig0r@gmail.com")
+				.subject("test7")
+				.textMessage("Hello!")
+				.attachment(EmailAttachment.with().content(file));
+
+		final DataSource attachmentDataSource = email.attachments().get(0).getDataSource();
+		assertTrue(attachmentDataSource instanceof FileDataSource);
+
+		final Message message = createMessage(email);
+		final MimeMultipart multipart = (MimeMultipart) message.getContent();
+		final MimeBodyPart mimeBodyPart = (MimeBodyPart) multipart.getBodyPart(1);
+
+		assertSame(attachmentDataSource, mimeBodyPart.getDataHandler().getDataSource());
+		assertEquals("base64", mimeBodyPart.getHeader("Content-Transfer-Encoding")[0]);
+		assertArrayEquals(BYTES_11_15, read(mimeBodyPart.getDataHandler().getDataSource()));
+	}
+
+	@Test
+	void testFrozenEmail() throws MessagingException, IOException {
+		final Email email = Email.create()
+				.from(FROM_EXAMPLE_COM)
+				.to(TO_EXAMPLE_COM)
+				.subject(SUB)
+				.textMessage(HELLO)
+				.attachment(EmailAttachment.with().content(BYTES_11_15, APPLICATION_ZIP));
+
+		final Email frozen = email.freeze();
+
+		assertTrue(frozen.isFrozen());
+		assertSame(frozen, frozen.freeze());
+		assertThrows(MailException.class, () -> frozen.subject("other"));
+		assertThrows(MailException.class, () -> frozen.bcc(BCC2_EXAMPLE_COM));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.attachments().clear());
+
+		// original email is still modifiable
+		email.cc(CC1_EXAMPLE_COM);
+		email.to()[0] = EmailAddress.of(CC1_EXAMPLE_COM);
+
+		// frozen email returns copies
+		frozen.to()[0] = EmailAddress.of(CC1_EXAMPLE_COM);
+		assertEquals(TO_EXAMPLE_COM, frozen.to()[0].toString());
+
+		final Message message = createMessage(frozen);
+		assertEquals(SUB, message.getSubject());
+		assertEquals(1, message.getAllRecipients().length);
+
+		final MimeMultipart multipart = (MimeMultipart) message.getContent();
+		assertEquals(2, multipart.getCount());
+		assertEquals(1, frozen.attachments().size());
+	}
 
 	// ---------------------------------------------------------------- util
 
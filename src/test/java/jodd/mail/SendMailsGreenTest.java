@@ -0,0 +1,125 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.mail;
+
+import jodd.mail.fixture.GreenMailServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SendMailsGreenTest {
+
+	private GreenMailServer greenMail;
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testBatchWithFailedEmail() {
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		final Email noRecipients = Email.create()
+			.from("jodd@use.me")
+			.subject("no recipients")
+			.textMessage("Hello");
+
+		final SendResult[] results;
+		try (final SendMailSession session = smtpServer.createSession()) {
+			session.open();
+			results = session.sendMails(Arrays.asList(email(1), noRecipients, email(2)));
+
+			// retry over the same connection
+			assertTrue(session.isConnected());
+			assertNotNull(session.sendMail(email(3)));
+		}
+
+		assertEquals(3, results.length);
+
+		assertTrue(results[0].isSuccess());
+		assertNotNull(results[0].getMessageId());
+		assertEquals(1, results[0].getAccepted().length);
+		assertEquals(GreenMailServer.GREEN_MAIL_COM, results[0].getAccepted()[0].getEmail());
+		assertEquals(0, results[0].getRejected().length);
+
+		assertFalse(results[1].isSuccess());
+		assertSame(noRecipients, results[1].getEmail());
+		assertNull(results[1].getMessageId());
+		assertNotNull(results[1].getException());
+		assertEquals(0, results[1].getAccepted().length);
+
+		assertTrue(results[2].isSuccess());
+
+		assertTrue(greenMail.waitForIncomingEmail(5000, 3));
+		assertEquals(3, greenMail.receivedCount());
+	}
+
+	@Test
+	void testFailedEmailReportsRecipientsAsRejected() {
+		final SmtpServer smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+
+		final SendResult[] results;
+		try (final SendMailSession session = smtpServer.createSession()) {
+			// not opened, sending fails before the envelope is sent
+			results = session.sendMails(Arrays.asList(email(1)));
+		}
+
+		assertFalse(results[0].isSuccess());
+		assertEquals(0, results[0].getAccepted().length);
+		assertEquals(1, results[0].getRejected().length);
+		assertEquals(GreenMailServer.GREEN_MAIL_COM, results[0].getRejected()[0].getEmail());
+	}
+
+	private static Email email(final int index) {
+		return Email.create()
+			.from("Jodd", "jodd@use.me")
+			.to(GreenMailServer.GREEN_MAIL_COM)
+			.subject("Batch " + index)
+			.textMessage("Hello " + index);
+	}
+}
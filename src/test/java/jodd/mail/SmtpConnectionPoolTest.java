@@ -0,0 +1,164 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+
+package jodd.mail;
+
+import jodd.mail.fixture.GreenMailServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpConnectionPoolTest {
+
+	private static final int EMAILS = 50;
+
+	private GreenMailServer greenMail;
+	private SmtpServer smtpServer;
+
+	@BeforeEach
+	void startGreenMailInstance() {
+		greenMail = new GreenMailServer().start();
+		smtpServer = MailServer.create()
+			.host(GreenMailServer.HOST)
+			.port(GreenMailServer.SMTP_PORT)
+			.buildSmtpMailServer();
+	}
+
+	@AfterEach
+	void stopGreenMailInstance() {
+		greenMail.stop();
+	}
+
+	@Test
+	void testSessionIsReused() {
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).build().open()) {
+			final SendMailSession session1 = pool.borrowSession();
+			assertTrue(session1.isConnected());
+			assertEquals(1, pool.getActiveCount());
+			session1.sendMail(email(1));
+			session1.close();
+
+			assertEquals(0, pool.getActiveCount());
+			assertEquals(1, pool.getIdleCount());
+
+			final SendMailSession session2 = pool.borrowSession();
+			assertSame(session1.getService(), session2.getService());
+			session2.sendMail(email(2));
+			session2.close();
+		}
+
+		assertTrue(greenMail.waitForIncomingEmail(5000, 2));
+	}
+
+	@Test
+	void testMinIdle() {
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).minIdle(3).build().open()) {
+			assertEquals(3, pool.getIdleCount());
+			assertEquals(0, pool.getActiveCount());
+		}
+	}
+
+	@Test
+	void testMaxMessagesPerConnection() {
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).maxMessagesPerConnection(2).build()) {
+			final SendMailSession session1 = pool.borrowSession();
+			session1.sendMail(email(1));
+			session1.sendMail(email(2));
+			session1.close();
+
+			assertEquals(0, pool.getIdleCount());
+			assertTrue(!session1.isConnected());
+
+			final SendMailSession session2 = pool.borrowSession();
+			assertNotSame(session1.getService(), session2.getService());
+			session2.close();
+		}
+	}
+
+	@Test
+	void testMaxTotal() {
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).maxTotal(1).borrowTimeout(100).build()) {
+			final SendMailSession session = pool.borrowSession();
+
+			assertThrows(MailException.class, pool::borrowSession);
+
+			session.close();
+			pool.borrowSession().close();
+		}
+	}
+
+	@Test
+	void testClosedPool() {
+		final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).build();
+		final SendMailSession session = pool.borrowSession();
+		pool.close();
+
+		session.close();
+		assertTrue(!session.isConnected());
+		assertThrows(MailException.class, pool::borrowSession);
+	}
+
+	@Test
+	void testThroughputAgainstOpenSendClose() {
+		long start = System.nanoTime();
+		for (int i = 0; i < EMAILS; i++) {
+			final SendMailSession session = smtpServer.createSession();
+			session.open();
+			session.sendMail(email(i));
+			session.close();
+		}
+		final long plainTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		try (final SmtpConnectionPool pool = SmtpConnectionPool.create(smtpServer).build().open()) {
+			for (int i = 0; i < EMAILS; i++) {
+				final SendMailSession session = pool.borrowSession();
+				session.sendMail(email(i));
+				session.close();
+			}
+		}
+		final long pooledTime = System.nanoTime() - start;
+
+		System.out.println("open/send/close: " + plainTime / 1_000_000 + "ms, pooled: " + pooledTime / 1_000_000 + "ms");
+
+		assertTrue(greenMail.waitForIncomingEmail(5000, EMAILS * 2));
+		assertEquals(EMAILS * 2, greenMail.receivedCount());
+	}
+
+	private static Email email(final int index) {
+		return Email.create()
+			.from("Jodd", "jodd@use.me")
+			.to(GreenMailServer.GREEN_MAIL_COM)
+			.subject("Pooled " + index)
+			.textMessage("Hello " + index);
+	}
+}
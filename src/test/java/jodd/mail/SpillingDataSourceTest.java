@@ -0,0 +1,234 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import jodd.io.IOUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillingDataSourceTest {
+
+	@TempDir
+	File spillFolder;
+
+	@Test
+	void testSmallContentOnHeap() throws IOException {
+		final byte[] content = content(100);
+
+		final SpillingDataSource dataSource = read(content);
+
+		assertNull(dataSource.getFile());
+		assertFalse(dataSource.getBuffer().isDirect());
+		assertEquals(100, dataSource.size());
+		assertArrayEquals(content, readAll(dataSource));
+	}
+
+	@Test
+	void testMediumContentOffHeap() throws IOException {
+		final byte[] content = content(200 * 1024);
+
+		final SpillingDataSource dataSource = read(content);
+
+		assertNull(dataSource.getFile());
+		final ByteBuffer buffer = dataSource.getBuffer();
+		assertTrue(buffer.isDirect());
+		assertTrue(buffer.isReadOnly());
+		// single direct buffer of the off-heap threshold size
+		assertEquals(1024 * 1024 + 1, buffer.capacity());
+		assertEquals(content.length, dataSource.size());
+		assertArrayEquals(content, readAll(dataSource));
+		// content can be read many times
+		assertArrayEquals(content, readAll(dataSource));
+		assertEquals(0, spillFolder.list().length);
+	}
+
+	@Test
+	void testLargeContentSpilled() throws IOException {
+		final byte[] content = content(1024 * 1024 + 1);
+
+		final SpillingDataSource dataSource = read(content);
+
+		final File file = dataSource.getFile();
+		assertNotNull(file);
+		assertEquals(spillFolder, file.getParentFile());
+		assertNull(dataSource.getBuffer());
+		assertEquals(content.length, dataSource.size());
+		assertArrayEquals(content, readAll(dataSource));
+
+		assertTrue(dataSource.release());
+		assertFalse(file.exists());
+	}
+
+	@Test
+	void testSpilledWithoutOffHeap() throws IOException {
+		final byte[] content = content(5000);
+
+		final SpillingDataSource dataSource = SpillingDataSource.read(
+			new ByteArrayInputStream(content), "application/octet-stream", new SpillThresholds(1000, 0, spillFolder));
+
+		assertNotNull(dataSource.getFile());
+		assertArrayEquals(content, readAll(dataSource));
+	}
+
+	@Test
+	void testReceivedAttachmentsBySize() throws MessagingException, IOException {
+		final Session session = Session.getInstance(new Properties());
+		final MimeMessage message = createMessage(session, content(10), content(200 * 1024), content(2 * 1024 * 1024));
+		final SpillThresholds thresholds = new SpillThresholds(16 * 1024, 1024 * 1024, spillFolder);
+
+		final ReceivedEmail email = new ReceivedEmail(message, false, new ReceiveSettings(null, thresholds, null));
+
+		assertEquals(3, email.attachments().size());
+		final SpillingDataSource small = (SpillingDataSource) email.attachments().get(0).getDataSource();
+		final SpillingDataSource medium = (SpillingDataSource) email.attachments().get(1).getDataSource();
+		final SpillingDataSource large = (SpillingDataSource) email.attachments().get(2).getDataSource();
+
+		assertFalse(small.getBuffer().isDirect());
+		assertTrue(medium.getBuffer().isDirect());
+		assertNotNull(large.getFile());
+
+		assertEquals(200 * 1024, email.attachments().get(1).getSize());
+		assertTrue(large.getContentType().startsWith("application/octet-stream"));
+		assertArrayEquals(content(2 * 1024 * 1024), email.attachments().get(2).toByteArray());
+		assertArrayEquals(content(200 * 1024), bytesOf(email.attachments().get(1).toByteBuffer()));
+		assertArrayEquals(content(200 * 1024), email.attachments().get(1).toByteArray());
+
+
+		email.release();
+		assertFalse(large.getFile().exists());
+		assertEquals(0, spillFolder.list().length);
+	}
+
+	@Test
+	void testThresholdsTooLarge() {
+		assertThrows(MailException.class, () -> new SpillThresholds(Integer.MAX_VALUE, 0, spillFolder));
+		assertThrows(MailException.class, () -> new SpillThresholds(0, Integer.MAX_VALUE, spillFolder));
+	}
+
+	@Test
+	void testSpilledAttachmentsReleasedOnFailure() throws MessagingException {
+		final Session session = Session.getInstance(new Properties());
+		final ReceiveSettings settings = new ReceiveSettings(null, new SpillThresholds(1024, 0, spillFolder), null);
+
+		final ReceivedEmail lazyEmail = new ReceivedEmail(createFailingMessage(session), false, settings.withLazy(true));
+		assertThrows(MailException.class, lazyEmail::attachments);
+		assertEquals(0, spillFolder.list().length);
+
+		assertThrows(MailException.class, () -> new ReceivedEmail(createFailingMessage(session), false, settings));
+		assertEquals(0, spillFolder.list().length);
+	}
+
+	private SpillingDataSource read(final byte[] content) throws IOException {
+		final SpillThresholds thresholds = new SpillThresholds(1024, 1024 * 1024, spillFolder);
+		return SpillingDataSource.read(new ByteArrayInputStream(content), "application/octet-stream", thresholds);
+	}
+
+	private static MimeMessage createMessage(final Session session, final byte[]... attachments) throws MessagingException, IOException {
+		final MimeMultipart multipart = new MimeMultipart();
+		final MimeBodyPart text = new MimeBodyPart();
+		text.setText("Hello");
+		multipart.addBodyPart(text);
+		for (int i = 0; i < attachments.length; i++) {
+			final MimeBodyPart attachment = new MimeBodyPart();
+			attachment.setDataHandler(new DataHandler(new ByteArrayDataSource(attachments[i], "application/octet-stream")));
+			attachment.setFileName("file" + i + ".bin");
+			multipart.addBodyPart(attachment);
+		}
+
+		final MimeMessage message = new MimeMessage(session);
+		message.setContent(multipart);
+		message.saveChanges();
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+		return new MimeMessage(session, new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	/**
+	 * Creates a message which second attachment can not be read.
+	 */
+	private static MimeMessage createFailingMessage(final Session session) throws MessagingException {
+		final MimeMultipart multipart = new MimeMultipart();
+		final MimeBodyPart attachment = new MimeBodyPart();
+		attachment.setDataHandler(new DataHandler(new ByteArrayDataSource(content(5000), "application/octet-stream")));
+		attachment.setFileName("file.bin");
+		multipart.addBodyPart(attachment);
+		multipart.addBodyPart(new MimeBodyPart() {
+			@Override
+			public Object getContent() throws MessagingException {
+				throw new MessagingException("Broken part");
+			}
+		});
+
+		final MimeMessage message = new MimeMessage(session);
+		message.setContent(multipart);
+		return message;
+	}
+
+	private static byte[] content(final int size) {
+		final byte[] content = new byte[size];
+		for (int i = 0; i < size; i++) {
+			content[i] = (byte) (i % 253);
+		}
+		return content;
+	}
+
+	private static byte[] readAll(final DataSource dataSource) throws IOException {
+		try (final InputStream in = dataSource.getInputStream()) {
+			return IOUtil.readBytes(in);
+		}
+	}
+
+	private static byte[] bytesOf(final ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+}
@@ -36,6 +36,7 @@ public class GreenMailServer {
 	public static final String HOST = "localhost";
 	public static final int SMTP_PORT = 3025;
 	public static final int POP3_PORT = 3110;
+	public static final int IMAP_PORT = 3143;
 
 	private GreenMail greenMail;
 
@@ -46,6 +47,14 @@ public class GreenMailServer {
 		return this;
 	}
 
+	public boolean waitForIncomingEmail(final long timeout, final int emailCount) {
+		return greenMail.waitForIncomingEmail(timeout, emailCount);
+	}
+
+	public int receivedCount() {
+		return greenMail.getReceivedMessages().length;
+	}
+
 	public void stop() {
 		if (greenMail != null) {
 			greenMail.stop();
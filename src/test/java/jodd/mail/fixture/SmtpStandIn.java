@@ -0,0 +1,253 @@
+// Copyright (c) 2003-present, Jodd Team (http://jodd.org)
+// All rights reserved.
+//
+// Redistribution and use in source and binary forms, with or without
+// modification, are permitted provided that the following conditions are met:
+//
+// 1. Redistributions of source code must retain the above copyright notice,
+// this list of conditions and the following disclaimer.
+//
+// 2. Redistributions in binary form must reproduce the above copyright
+// notice, this list of conditions and the following disclaimer in the
+// documentation and/or other materials provided with the distribution.
+//
+// THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+// AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+// IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+// ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+// LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+// CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+// SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+// INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+// CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+// ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+// POSSIBILITY OF SUCH DAMAGE.
+
+package jodd.mail.fixture;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal SMTP server stand-in that counts round-trips. Responses are buffered
+ * and sent only when the client stops sending, i.e. when it waits for the server.
+ * Each such flush is one round-trip. Senders and recipients starting with {@code bad} are rejected.
+ */
+public class SmtpStandIn {
+
+	private static final long IDLE_MILLIS = 50;
+
+	private final boolean pipelining;
+	private final boolean chunking;
+	private final AtomicInteger roundTrips = new AtomicInteger();
+	private final List<String> commands = Collections.synchronizedList(new ArrayList<>());
+	private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+	private ServerSocket serverSocket;
+	private Thread thread;
+
+	public SmtpStandIn(final boolean pipelining, final boolean chunking) {
+		this.pipelining = pipelining;
+		this.chunking = chunking;
+	}
+
+	public SmtpStandIn start() {
+		try {
+			serverSocket = new ServerSocket(0);
+		}
+		catch (final IOException ioex) {
+			throw new IllegalStateException(ioex);
+		}
+		thread = new Thread(this::acceptConnections, "smtp-stand-in");
+		thread.setDaemon(true);
+		thread.start();
+		return this;
+	}
+
+	public int port() {
+		return serverSocket.getLocalPort();
+	}
+
+	public int roundTrips() {
+		return roundTrips.get();
+	}
+
+	public void resetRoundTrips() {
+		roundTrips.set(0);
+	}
+
+	public List<String> commands() {
+		return commands;
+	}
+
+	public List<String> messages() {
+		return messages;
+	}
+
+	public void stop() {
+		try {
+			serverSocket.close();
+		}
+		catch (final IOException ignore) {
+		}
+	}
+
+	// ---------------------------------------------------------------- protocol
+
+	private void acceptConnections() {
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				final Thread connectionThread = new Thread(() -> handleConnection(socket), "smtp-stand-in-connection");
+				connectionThread.setDaemon(true);
+				connectionThread.start();
+			}
+			catch (final IOException ignore) {
+			}
+		}
+	}
+
+	private void handleConnection(final Socket socket) {
+		try (final Socket connection = socket) {
+			handle(new BufferedInputStream(connection.getInputStream()), connection.getOutputStream());
+		}
+		catch (final IOException ignore) {
+		}
+	}
+
+	private void handle(final InputStream in, final OutputStream out) throws IOException {
+		final StringBuilder responses = new StringBuilder();
+		respond(responses, "220 stand-in ESMTP");
+
+		while (true) {
+			flushWhenIdle(in, out, responses);
+
+			final String command = readLine(in);
+			if (command == null) {
+				return;
+			}
+			commands.add(command);
+
+			final String verb = command.toUpperCase();
+			if (verb.startsWith("EHLO")) {
+				respond(responses, "250-stand-in");
+				if (pipelining) {
+					respond(responses, "250-PIPELINING");
+				}
+				if (chunking) {
+					respond(responses, "250-CHUNKING");
+				}
+				respond(responses, "250 8BITMIME");
+			}
+			else if (verb.startsWith("MAIL FROM:<BAD")) {
+				respond(responses, "550 sender rejected");
+			}
+			else if (verb.startsWith("RCPT TO:")) {
+				if (verb.startsWith("RCPT TO:<BAD")) {
+					respond(responses, "550 unknown user");
+				} else {
+					respond(responses, "250 OK");
+				}
+			}
+			else if (verb.startsWith("DATA")) {
+				respond(responses, "354 go ahead");
+				flush(out, responses);
+				messages.add(readData(in));
+				respond(responses, "250 OK");
+			}
+			else if (verb.startsWith("BDAT")) {
+				final String[] tokens = command.split(" ");
+				final byte[] chunk = readBytes(in, Integer.parseInt(tokens[1]));
+				messages.add(new String(chunk, StandardCharsets.UTF_8));
+				respond(responses, "250 OK");
+			}
+			else if (verb.startsWith("QUIT")) {
+				respond(responses, "221 bye");
+				flush(out, responses);
+				return;
+			}
+			else {
+				respond(responses, "250 OK");
+			}
+		}
+	}
+
+	private void flushWhenIdle(final InputStream in, final OutputStream out, final StringBuilder responses) throws IOException {
+		if (responses.length() == 0) {
+			return;
+		}
+		final long end = System.currentTimeMillis() + IDLE_MILLIS;
+		while (in.available() == 0 && System.currentTimeMillis() < end) {
+			try {
+				Thread.sleep(1);
+			}
+			catch (final InterruptedException iex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		if (in.available() == 0) {
+			flush(out, responses);
+		}
+	}
+
+	private void flush(final OutputStream out, final StringBuilder responses) throws IOException {
+		out.write(responses.toString().getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+		responses.setLength(0);
+		roundTrips.incrementAndGet();
+	}
+
+	private static void respond(final StringBuilder responses, final String response) {
+		responses.append(response).append("\r\n");
+	}
+
+	private static String readData(final InputStream in) throws IOException {
+		final StringBuilder data = new StringBuilder();
+		while (true) {
+			final String line = readLine(in);
+			if (line == null || line.equals(".")) {
+				return data.toString();
+			}
+			data.append(line.startsWith(".") ? line.substring(1) : line).append("\r\n");
+		}
+	}
+
+	private static byte[] readBytes(final InputStream in, final int size) throws IOException {
+		final byte[] bytes = new byte[size];
+		int total = 0;
+		while (total < size) {
+			final int count = in.read(bytes, total, size - total);
+			if (count == -1) {
+				throw new IOException("Unexpected end of stream");
+			}
+			total += count;
+		}
+		return bytes;
+	}
+
+	private static String readLine(final InputStream in) throws IOException {
+		final ByteArrayOutputStream line = new ByteArrayOutputStream();
+		while (true) {
+			final int b = in.read();
+			if (b == -1) {
+				return line.size() == 0 ? null : line.toString("UTF-8");
+			}
+			if (b == '\n') {
+				final String value = line.toString("UTF-8");
+				return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+			}
+			line.write(b);
+		}
+	}
+}